@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/*
+ * JMH benchmarks for the parts of auth-lib that don't depend on the Android framework at runtime.
+ * Those sources are compiled straight from auth-lib into this JVM module. Robolectric's android-all
+ * jar supplies the few framework classes they use, such as android.util.Base64.
+ *
+ * run: ./gradlew :auth-benchmarks:jmh
+ * Every suite runs with the gc profiler, which adds allocation rates (gc.alloc.rate.norm is
+ * bytes per operation) to the results in build/results/jmh.
+ */
+
+plugins {
+    id("org.jetbrains.kotlin.jvm")
+    id("me.champeau.jmh")
+}
+
+val authLibSources = "${rootProject.projectDir}/auth-lib/src/main/kotlin"
+
+kotlin {
+    sourceSets["main"].kotlin.apply {
+        setSrcDirs(listOf(authLibSources))
+        include(
+            "com/spotify/sdk/android/auth/DigestProvider.kt",
+            "com/spotify/sdk/android/auth/FormBody.kt",
+            "com/spotify/sdk/android/auth/PKCEInformation.kt",
+            "com/spotify/sdk/android/auth/PKCEInformationFactory.kt",
+            "com/spotify/sdk/android/auth/ScopeSet.kt",
+            "com/spotify/sdk/android/auth/SharedSecureRandom.kt",
+            "com/spotify/sdk/android/auth/TokenExchangeResponse.kt",
+            "com/spotify/sdk/android/auth/TokenResponseParser.kt",
+            "com/spotify/sdk/android/auth/app/Sha1HashUtil.kt"
+        )
+    }
+}
+
+val kotlinVersion = rootProject.extra["kotlin_version"] as String
+
+dependencies {
+    implementation("org.jetbrains.kotlin:kotlin-stdlib:$kotlinVersion")
+    implementation("org.robolectric:android-all:14-robolectric-10818077")
+
+    // Baseline for the token response parser benchmark
+    jmh("org.json:json:20231013")
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.set(listOf("gc"))
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first PKCE pair of a process, with and without AuthorizationClient.warmUp having seeded
+ * the shared SecureRandom first. Every fork is a new JVM, so each measurement is a cold first
+ * call: creating and seeding the SecureRandom, looking up the SHA-256 provider and loading the
+ * classes involved. Only the difference between the two is meaningful; on a device seeding can
+ * take much longer than on a desktop JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class FirstLoginBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class WarmedUp {
+        @Setup(Level.Trial)
+        public void warmUp() {
+            SharedSecureRandom.INSTANCE.warmUp();
+        }
+    }
+
+    @Benchmark
+    public PKCEInformation cold() throws NoSuchAlgorithmException {
+        return PKCEInformationFactory.create();
+    }
+
+    @Benchmark
+    public PKCEInformation afterWarmUp(WarmedUp warmedUp) throws NoSuchAlgorithmException {
+        return PKCEInformationFactory.create();
+    }
+}
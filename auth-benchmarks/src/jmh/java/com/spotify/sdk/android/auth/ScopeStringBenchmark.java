@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the scope parameter of an authorization request from the scopes an app passes to
+ * AuthorizationRequest.Builder.setScopes. Sets of known scopes are interned, so their string is
+ * built once; a custom scope makes every set new.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScopeStringBenchmark {
+
+    @Param({"known", "withCustom"})
+    public String scopes;
+
+    private String[] mScopes;
+
+    @Setup
+    public void setUp() {
+        if ("known".equals(scopes)) {
+            mScopes = new String[]{"user-read-private", "user-read-email", "playlist-read-private", "streaming"};
+        } else {
+            mScopes = new String[]{"user-read-private", "user-read-email", "streaming", "partner-custom-scope"};
+        }
+    }
+
+    @Benchmark
+    public String scopeSet() {
+        return ScopeSet.of(mScopes).toString();
+    }
+
+    /**
+     * How AuthorizationRequest built the scope parameter before ScopeSet.
+     */
+    @Benchmark
+    public String concatenation() {
+        final StringBuilder concatScopes = new StringBuilder();
+        for (String scope : mScopes) {
+            concatScopes.append(scope);
+            concatScopes.append(" ");
+        }
+        return concatScopes.toString().trim();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenExchangeResponse.fromHttpResponse, the entry point for callers that already hold the
+ * response body as a string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenExchangeResponseBenchmark {
+
+    private static final String SUCCESS = "{\"access_token\":\"BQDx7mK3s9VqBQDx7mK3s9VqBQDx7mK3s9VqBQDx7mK3s9Vq\","
+            + "\"token_type\":\"Bearer\",\"expires_in\":3600,"
+            + "\"refresh_token\":\"AQCa0PpJ4eAQCa0PpJ4eAQCa0PpJ4e\","
+            + "\"scope\":\"user-read-private user-read-email playlist-read-private streaming\"}";
+
+    private static final String ERROR = "{\"error\":\"invalid_grant\","
+            + "\"error_description\":\"Invalid authorization code\"}";
+
+    @Param({"success", "error"})
+    public String response;
+
+    private String mBody;
+    private int mResponseCode;
+
+    @Setup
+    public void setUp() {
+        if ("success".equals(response)) {
+            mBody = SUCCESS;
+            mResponseCode = 200;
+        } else {
+            mBody = ERROR;
+            mResponseCode = 400;
+        }
+    }
+
+    @Benchmark
+    public TokenExchangeResponse fromHttpResponse() {
+        return TokenExchangeResponse.fromHttpResponse(mResponseCode, mBody);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the body of an authorization code exchange the way TokenExchangeRequest does, with
+ * FormBody, and the way it did before, with one URLEncoder call and string concatenation per
+ * parameter. TokenExchangeRequest itself needs Android classes, so its calls are repeated here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenRequestBodyBenchmark {
+
+    private final String mClientId = "9f3c2a1b7d4e4f6a8b0c1d2e3f4a5b6c";
+    private final String mCode = "AQB3vXk9Lm2Qp7Rt5Wy8Zc1Df4Gh6Jk0Nn3Ss7Uu9Xx2Aa5Cc8Ee1Gg4Ii7Kk0Mm3Oo6Qq9";
+    private final String mRedirectUri = "spotify-sdk://auth/callback";
+    private final String mCodeVerifier =
+            "Zk3xP9qL2mN7vB4cR8tY1wE6uI0oA5sD3fG7hJ2kL9zX4cV8bN1mQ6wE0rT5yU3iO7pA2sD9fG4hJ8kL1zX6cV0bN5mQ3w"
+                    + "E7rT2yU9iO4pA8sD1fG6hJ0kL5zX3cV7b";
+
+    @Benchmark
+    public String formBody() {
+        return new FormBody()
+                .add("grant_type", "authorization_code")
+                .add("client_id", mClientId)
+                .add("code", mCode)
+                .add("redirect_uri", mRedirectUri)
+                .add("code_verifier", mCodeVerifier)
+                .toString();
+    }
+
+    @Benchmark
+    public String urlEncoderConcatenation() throws UnsupportedEncodingException {
+        return "grant_type=" + URLEncoder.encode("authorization_code", "UTF-8")
+                + "&client_id=" + URLEncoder.encode(mClientId, "UTF-8")
+                + "&code=" + URLEncoder.encode(mCode, "UTF-8")
+                + "&redirect_uri=" + URLEncoder.encode(mRedirectUri, "UTF-8")
+                + "&code_verifier=" + URLEncoder.encode(mCodeVerifier, "UTF-8");
+    }
+}
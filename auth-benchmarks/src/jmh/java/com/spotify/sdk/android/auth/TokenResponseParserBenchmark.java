@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming token response parser with the JSONObject based parsing it replaced.
+ * Both start from the raw response bytes, as they would when reading from the connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenResponseParserBenchmark {
+
+    private static final String ACCESS_TOKEN = repeat("BQDx7mK3s9Vq", 24);
+
+    private static final String SUCCESS = "{\"access_token\":\"" + ACCESS_TOKEN + "\","
+            + "\"token_type\":\"Bearer\",\"expires_in\":3600,"
+            + "\"refresh_token\":\"" + repeat("AQCa0PpJ4e", 13) + "\","
+            + "\"scope\":\"user-read-private user-read-email playlist-read-private streaming\"}";
+
+    private static final String SUCCESS_WITH_UNKNOWN_FIELDS = "{\"access_token\":\"" + ACCESS_TOKEN + "\","
+            + "\"token_type\":\"Bearer\",\"expires_in\":3600,"
+            + "\"metadata\":{\"issued\":[1700000000,1700003600],\"region\":\"eu\",\"flags\":{\"a\":true}},"
+            + "\"scope\":\"user-read-private user-read-email\"}";
+
+    private static final String ERROR = "{\"error\":\"invalid_grant\","
+            + "\"error_description\":\"Invalid authorization code\"}";
+
+    @Param({"success", "unknownFields", "error"})
+    public String response;
+
+    private byte[] mBody;
+    private int mResponseCode;
+
+    @Setup
+    public void setUp() {
+        switch (response) {
+            case "success":
+                mBody = SUCCESS.getBytes(StandardCharsets.UTF_8);
+                mResponseCode = 200;
+                break;
+            case "unknownFields":
+                mBody = SUCCESS_WITH_UNKNOWN_FIELDS.getBytes(StandardCharsets.UTF_8);
+                mResponseCode = 200;
+                break;
+            default:
+                mBody = ERROR.getBytes(StandardCharsets.UTF_8);
+                mResponseCode = 400;
+                break;
+        }
+    }
+
+    @Benchmark
+    public TokenExchangeResponse streamingParser() throws IOException {
+        return TokenResponseParser.INSTANCE.parse(mResponseCode, new ByteArrayInputStream(mBody));
+    }
+
+    @Benchmark
+    public TokenExchangeResponse jsonObject() throws IOException {
+        return parseWithJsonObject(mResponseCode, readLines(new ByteArrayInputStream(mBody)));
+    }
+
+    /**
+     * The response reading that TokenExchangeRequest used before the streaming parser.
+     */
+    private static String readLines(InputStream body) throws IOException {
+        final StringBuilder response = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                response.append(line);
+            }
+        }
+        return response.toString();
+    }
+
+    /**
+     * The JSONObject based parsing that TokenExchangeResponse used before the streaming parser.
+     */
+    private static TokenExchangeResponse parseWithJsonObject(int responseCode, String responseBody) {
+        if (responseBody == null || responseBody.trim().isEmpty()) {
+            return TokenExchangeResponse.fromError("invalid_response", "Empty response body");
+        }
+        try {
+            final JSONObject json = new JSONObject(responseBody);
+            if (responseCode == 200) {
+                final String accessToken = json.optString("access_token", null);
+                if (accessToken == null || accessToken.isEmpty()) {
+                    return TokenExchangeResponse.fromError("invalid_response", "Missing access_token in response");
+                }
+                return TokenExchangeResponse.fromSuccess(accessToken,
+                        json.optString("token_type", null),
+                        json.optInt("expires_in", 0),
+                        json.optString("scope", null),
+                        json.optString("refresh_token", null));
+            }
+            return TokenExchangeResponse.fromError(json.optString("error", "unknown_error"),
+                    json.optString("error_description", null));
+        } catch (JSONException e) {
+            return TokenExchangeResponse.fromError("invalid_response", "Invalid JSON response: " + e.getMessage());
+        }
+    }
+
+    private static String repeat(String value, int count) {
+        final StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes a signing certificate the size of the Spotify app's, in the hex form that
+ * Signature.toCharsString returns, as the signature check does for every installed Spotify
+ * package. The baseline is the MessageDigest lookup and byte conversion per call that
+ * Sha1HashUtilImpl used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Sha1HashUtilBenchmark {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Sha1HashUtil mSha1HashUtil = new Sha1HashUtilImpl();
+    private final String mCertificate = certificateChars(1400);
+
+    @Benchmark
+    public String sha1Hash() {
+        return mSha1HashUtil.sha1Hash(mCertificate);
+    }
+
+    @Benchmark
+    public String digestPerCall() throws NoSuchAlgorithmException {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        final byte[] bytes = mCertificate.getBytes(StandardCharsets.UTF_8);
+        digest.update(bytes, 0, bytes.length);
+        return toHex(digest.digest());
+    }
+
+    private static String certificateChars(int certificateBytes) {
+        final StringBuilder builder = new StringBuilder(certificateBytes * 2);
+        for (int i = 0; i < certificateBytes; i++) {
+            int value = (i * 31 + 7) & 0xFF;
+            builder.append(HEX[value >>> 4]).append(HEX[value & 0x0F]);
+        }
+        return builder.toString();
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] hexChars = new char[bytes.length * 2];
+        for (int j = 0; j < bytes.length; j++) {
+            int v = bytes[j] & 0xFF;
+            hexChars[j * 2] = HEX[v >>> 4];
+            hexChars[j * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+}
@@ -114,6 +114,7 @@ val kotlinVersion = rootProject.extra["kotlin_version"] as String
 dependencies {
     implementation("androidx.browser:browser:1.5.0")
     api("org.jetbrains.kotlin:kotlin-stdlib:$kotlinVersion")
+    implementation("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.7.3")
 
     testImplementation("junit:junit:4.13.2")
     testImplementation("org.mockito:mockito-core:2.28.2")
@@ -35,8 +35,10 @@ import androidx.browser.customtabs.CustomTabsClient
 import androidx.browser.customtabs.CustomTabsIntent
 import androidx.browser.customtabs.CustomTabsServiceConnection
 import androidx.browser.customtabs.CustomTabsSession
+import com.spotify.sdk.android.auth.AuthTrace
 import com.spotify.sdk.android.auth.AuthorizationHandler
 import com.spotify.sdk.android.auth.AuthorizationRequest
+import com.spotify.sdk.android.auth.TokenEndpointPreconnector
 
 /**
  * An AuthorizationHandler that opens the Spotify web auth page in a Custom Tab or users default web browser.
@@ -52,7 +54,8 @@ class BrowserAuthHandler : AuthorizationHandler {
     override fun start(contextActivity: Activity, request: AuthorizationRequest): Boolean {
         Log.d(TAG, "start")
         context = contextActivity
-        uri = request.toUri()
+        val uri = request.toUri()
+        this.uri = uri
         val packageSupportingCustomTabs = CustomTabsSupportChecker.getPackageSupportingCustomTabs(contextActivity, request)
         val shouldLaunchCustomTab = !TextUtils.isEmpty(packageSupportingCustomTabs)
 
@@ -64,18 +67,21 @@ class BrowserAuthHandler : AuthorizationHandler {
             Log.d(TAG, "Launching auth in a Custom Tab using package:$packageSupportingCustomTabs")
             val connection = object : CustomTabsServiceConnection() {
                 override fun onCustomTabsServiceConnected(name: ComponentName, client: CustomTabsClient) {
+                    AuthTrace.endAsync(AuthTrace.CUSTOM_TAB_CONNECT)
+                    AuthTrace.begin(AuthTrace.CUSTOM_TAB_LAUNCH)
                     client.warmup(0L)
                     val session = client.newSession(CustomTabsCallback())
                     tabsSession = session
                     if (session != null) {
                         val customTabsIntent = CustomTabsIntent.Builder().setSession(session).build()
-                        context?.let { customTabsIntent.launchUrl(it, request.toUri()) }
+                        context?.let { customTabsIntent.launchUrl(it, uri) }
                         isAuthInProgress = true
                     } else {
                         unbindCustomTabsService()
                         Log.i(TAG, "Auth using CustomTabs aborted, reason: CustomTabsSession is null.")
                         launchAuthInBrowserFallback()
                     }
+                    AuthTrace.end()
                 }
 
                 override fun onServiceDisconnected(name: ComponentName) {
@@ -85,11 +91,13 @@ class BrowserAuthHandler : AuthorizationHandler {
                 }
             }
             tabConnection = connection
+            AuthTrace.beginAsync(AuthTrace.CUSTOM_TAB_CONNECT)
             CustomTabsClient.bindCustomTabsService(contextActivity, packageSupportingCustomTabs, connection)
         } else {
             Log.d(TAG, "Launching auth inside a web browser")
             launchAuthInBrowserFallback()
         }
+        TokenEndpointPreconnector.onAuthStarted(request)
         return true
     }
 
@@ -3,6 +3,7 @@ package com.spotify.sdk.android.auth.browser
 import android.app.Activity
 import android.content.Intent
 import android.os.Bundle
+import com.spotify.sdk.android.auth.AuthTrace
 import com.spotify.sdk.android.auth.LoginActivity
 
 /**
@@ -14,11 +15,21 @@ import com.spotify.sdk.android.auth.LoginActivity
 class RedirectUriReceiverActivity : Activity() {
 
     override fun onCreate(savedInstanceState: Bundle?) {
-        super.onCreate(savedInstanceState)
-        val intent = Intent(this, LoginActivity::class.java)
-        intent.data = getIntent().data
-        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP or Intent.FLAG_ACTIVITY_SINGLE_TOP)
-        startActivity(intent)
-        finish()
+        // Ended by LoginActivity, which always receives the intent started here
+        AuthTrace.beginAsync(AuthTrace.TIME_TO_RESPONSE)
+        AuthTrace.begin(AuthTrace.REDIRECT_RECEIVER_CREATE)
+        try {
+            super.onCreate(savedInstanceState)
+            val intent = Intent(this, LoginActivity::class.java)
+            intent.data = getIntent().data
+            intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP or Intent.FLAG_ACTIVITY_SINGLE_TOP)
+            startActivity(intent)
+            finish()
+        } catch (e: RuntimeException) {
+            AuthTrace.endAsync(AuthTrace.TIME_TO_RESPONSE)
+            throw e
+        } finally {
+            AuthTrace.end()
+        }
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.Build
+import android.os.Trace
+import androidx.annotation.VisibleForTesting
+
+/**
+ * Names and helpers for the trace sections of the login flow. They show up in system traces
+ * and are read by the macrobenchmarks in auth-macrobenchmark.
+ *
+ * The async sections span several activities, so they can only be recorded on API 29+. Only
+ * one login runs at a time, so every async section uses the same cookie. An async section that is
+ * already open is not begun again, and one that is not open is not ended, so sections with the
+ * same name never overlap and each one is ended exactly once.
+ */
+internal object AuthTrace {
+
+    const val OPEN_LOGIN_ACTIVITY = "SpotifyAuth:openLoginActivity"
+    const val LOGIN_ACTIVITY_CREATE = "SpotifyAuth:LoginActivity.onCreate"
+    const val LOGIN_ACTIVITY_NEW_INTENT = "SpotifyAuth:LoginActivity.onNewIntent"
+    const val LOGIN_ACTIVITY_DESTROY = "SpotifyAuth:LoginActivity.onDestroy"
+    const val CUSTOM_TAB_LAUNCH = "SpotifyAuth:customTabLaunch"
+    const val REDIRECT_RECEIVER_CREATE = "SpotifyAuth:RedirectUriReceiverActivity.onCreate"
+
+    /** Async: from binding the Custom Tabs service until it is connected. */
+    const val CUSTOM_TAB_CONNECT = "SpotifyAuth:customTabConnect"
+
+    /** Async: from [AuthorizationClient.openLoginActivity] until LoginActivity is first stopped behind the auth UI. */
+    const val TIME_TO_AUTH_UI = "SpotifyAuth:timeToAuthUi"
+
+    /** Async: from the redirect reaching the app until LoginActivity returns the response to the caller. */
+    const val TIME_TO_RESPONSE = "SpotifyAuth:timeToResponse"
+
+    private const val ASYNC_COOKIE = 0
+
+    /** Names of the async sections that have begun and not ended yet. Guarded by itself. */
+    private val openAsyncSections = HashSet<String>()
+
+    fun begin(name: String) {
+        Trace.beginSection(name)
+    }
+
+    fun end() {
+        Trace.endSection()
+    }
+
+    fun beginAsync(name: String) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            synchronized(openAsyncSections) {
+                if (openAsyncSections.add(name)) {
+                    Trace.beginAsyncSection(name, ASYNC_COOKIE)
+                }
+            }
+        }
+    }
+
+    fun endAsync(name: String) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            synchronized(openAsyncSections) {
+                if (openAsyncSections.remove(name)) {
+                    Trace.endAsyncSection(name, ASYNC_COOKIE)
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    fun isAsyncSectionOpen(name: String): Boolean {
+        return synchronized(openAsyncSections) { name in openAsyncSections }
+    }
+}
@@ -30,6 +30,7 @@ import android.net.Uri
 import android.text.TextUtils
 import android.util.Log
 import androidx.annotation.VisibleForTesting
+import com.spotify.sdk.android.auth.app.SpotifyAppInfo
 import com.spotify.sdk.android.auth.app.SpotifyAuthHandler
 import com.spotify.sdk.android.auth.app.SpotifyNativeAuthUtil
 import java.security.NoSuchAlgorithmException
@@ -174,11 +175,12 @@ class AuthorizationClient(
      * This activity will receive the result through the [AuthorizationClientListener]
      */
     private var currentHandler: AuthorizationHandler? = null
+    private val spotifyAuthHandler = SpotifyAuthHandler()
     private val authorizationHandlers: MutableList<AuthorizationHandler> = ArrayList()
     private var authorizationClientListener: AuthorizationClientListener? = null
 
     init {
-        authorizationHandlers.add(SpotifyAuthHandler())
+        authorizationHandlers.add(spotifyAuthHandler)
         authorizationHandlers.add(FallbackHandlerProvider().provideFallback())
     }
 
@@ -215,13 +217,23 @@ class AuthorizationClient(
         authorizationClientListener = listener
     }
 
-    fun authorize(request: AuthorizationRequest) {
+    /**
+     * Starts the authorization flow.
+     *
+     * @param request Authorization request containing client credentials and configuration.
+     * @param spotifyAppInfo Result of an earlier Spotify app probe, or null to probe now.
+     */
+    @JvmOverloads
+    fun authorize(request: AuthorizationRequest, spotifyAppInfo: SpotifyAppInfo? = null) {
         if (authorizationPending) return
         authorizationPending = true
 
         checkRedirectUriConfiguration(loginActivity.packageManager, request.redirectUri)
 
-        val processedRequest = validateAndConvertTokenRequest(request)
+        val appInfo = spotifyAppInfo ?: SpotifyNativeAuthUtil.getSpotifyAppInfo(loginActivity)
+        spotifyAuthHandler.setSpotifyAppInfo(appInfo)
+
+        val processedRequest = validateAndConvertTokenRequest(request, appInfo)
 
         for (authHandler in authorizationHandlers) {
             if (tryAuthorizationHandler(authHandler, processedRequest)) {
@@ -316,7 +328,10 @@ class AuthorizationClient(
         }
     }
 
-    private fun validateAndConvertTokenRequest(request: AuthorizationRequest): AuthorizationRequest {
+    private fun validateAndConvertTokenRequest(
+        request: AuthorizationRequest,
+        spotifyAppInfo: SpotifyAppInfo
+    ): AuthorizationRequest {
         val isTokenRequest = AuthorizationResponse.Type.TOKEN.toString() == request.responseType
         val hasPkce = request.pkceInformation != null
 
@@ -324,11 +339,8 @@ class AuthorizationClient(
             return request
         }
 
-        val isSpotifyInstalled = SpotifyNativeAuthUtil.isSpotifyInstalled(loginActivity)
-        val isPKCESpotifyVersion = SpotifyNativeAuthUtil.isSpotifyVersionAtLeast(
-            loginActivity,
-            MIN_SPOTIFY_VERSION_FOR_TOKEN_CONVERSION
-        )
+        val isSpotifyInstalled = spotifyAppInfo.isInstalled
+        val isPKCESpotifyVersion = supportsTokenConversion(spotifyAppInfo)
 
         val shouldConvert = !isSpotifyInstalled || isPKCESpotifyVersion
 
@@ -390,6 +402,9 @@ class AuthorizationClient(
         @VisibleForTesting
         const val MIN_SPOTIFY_VERSION_FOR_TOKEN_CONVERSION = 132384743
 
+        private fun supportsTokenConversion(spotifyAppInfo: SpotifyAppInfo): Boolean =
+            spotifyAppInfo.verifiedVersionCode >= MIN_SPOTIFY_VERSION_FOR_TOKEN_CONVERSION
+
         /**
          * Query parameters for Play Store intents.
          */
@@ -443,12 +458,54 @@ class AuthorizationClient(
             contextActivity: Activity,
             request: AuthorizationRequest
         ): Intent {
-            val processedRequest = appendPkceIfTokenRequest(contextActivity, request)
-            val intent = LoginActivity.getAuthIntent(contextActivity, processedRequest)
+            // Probe once here and hand the result to LoginActivity so it doesn't query the package manager again
+            val spotifyAppInfo = SpotifyNativeAuthUtil.getSpotifyAppInfo(contextActivity)
+            val processedRequest = appendPkceIfTokenRequest(request, spotifyAppInfo)
+            val intent = LoginActivity.getAuthIntent(contextActivity, processedRequest, spotifyAppInfo)
             intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP)
             return intent
         }
 
+        @Volatile
+        private var currentConfig = AuthorizationConfig.DEFAULT
+
+        /**
+         * Sets the library-wide configuration. Call it before starting the authorization flow,
+         * for example from `Application.onCreate`.
+         *
+         * @param config The configuration to use
+         */
+        @JvmStatic
+        fun setConfig(config: AuthorizationConfig) {
+            currentConfig = config
+            TokenStore.onConfigChanged()
+        }
+
+        /**
+         * @return The library-wide configuration
+         */
+        @JvmStatic
+        fun getConfig(): AuthorizationConfig = currentConfig
+
+        /**
+         * Prepares the library for a fast first login. Call this early, for example from
+         * `Application.onCreate`. The work runs on the library's background thread: it seeds the random
+         * generator used for PKCE, pre-generates PKCE parameters, looks up the installed
+         * Spotify app and reads [TokenStore] from disk. Calling it more than once is harmless.
+         *
+         * @param context Any context. Only its application context is kept.
+         */
+        @JvmStatic
+        fun warmUp(context: Context) {
+            val appContext = context.applicationContext ?: context
+            IoExecutor.executeInBackground {
+                SharedSecureRandom.warmUp()
+                PKCEPool.shared.prefill()
+                SpotifyNativeAuthUtil.getSpotifyAppInfo(appContext)
+                TokenStore.getInstance(appContext).load()
+            }
+        }
+
         /**
          * Opens the [LoginActivity] for result.
          *
@@ -473,8 +530,18 @@ class AuthorizationClient(
             requestCode: Int,
             request: AuthorizationRequest
         ) {
-            val intent = createLoginActivityIntent(contextActivity, request)
-            contextActivity.startActivityForResult(intent, requestCode)
+            AuthTrace.beginAsync(AuthTrace.TIME_TO_AUTH_UI)
+            AuthTrace.begin(AuthTrace.OPEN_LOGIN_ACTIVITY)
+            try {
+                val intent = createLoginActivityIntent(contextActivity, request)
+                contextActivity.startActivityForResult(intent, requestCode)
+            } catch (e: RuntimeException) {
+                // LoginActivity won't be stopped behind the auth UI, so end the section here
+                AuthTrace.endAsync(AuthTrace.TIME_TO_AUTH_UI)
+                throw e
+            } finally {
+                AuthTrace.end()
+            }
         }
 
         /**
@@ -573,15 +640,12 @@ class AuthorizationClient(
         }
 
         private fun appendPkceIfTokenRequest(
-            context: Context,
-            request: AuthorizationRequest
+            request: AuthorizationRequest,
+            spotifyAppInfo: SpotifyAppInfo
         ): AuthorizationRequest {
             val isTokenRequest = AuthorizationResponse.Type.TOKEN.toString() == request.responseType
-            val isSpotifyInstalled = SpotifyNativeAuthUtil.isSpotifyInstalled(context)
-            val isPKCESpotifyVersion = SpotifyNativeAuthUtil.isSpotifyVersionAtLeast(
-                context,
-                MIN_SPOTIFY_VERSION_FOR_TOKEN_CONVERSION
-            )
+            val isSpotifyInstalled = spotifyAppInfo.isInstalled
+            val isPKCESpotifyVersion = supportsTokenConversion(spotifyAppInfo)
             val hasSpotifyVersionWithoutPKCESupportInstalled =
                 isSpotifyInstalled && !isPKCESpotifyVersion
             if (!isTokenRequest || hasSpotifyVersionWithoutPKCESupportInstalled) {
@@ -589,7 +653,7 @@ class AuthorizationClient(
             }
 
             return try {
-                val pkceInfo = PKCEInformationFactory.create()
+                val pkceInfo = PKCEPool.shared.take()
 
                 AuthorizationRequest.Builder(
                     request.clientId,
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.net.Uri
+import androidx.annotation.RestrictTo
+import java.util.concurrent.Executor
+
+/**
+ * Library-wide settings for the authorization flow.
+ * To create one use [AuthorizationConfig.Builder], then pass it to [AuthorizationClient.setConfig].
+ */
+class AuthorizationConfig private constructor(
+    /**
+     * True if the library should connect to the accounts token endpoint in the background while
+     * the user is in the auth UI, so the code exchange after the redirect doesn't wait for DNS, TCP and TLS.
+     */
+    val preconnectTokenEndpoint: Boolean,
+    /**
+     * The executor for the library's background work, or null to use the library's own
+     * pool of daemon threads.
+     */
+    val executor: Executor?,
+    /**
+     * True if tokens returned by [LoginActivity] should be added to [TokenStore]
+     */
+    val storeTokens: Boolean,
+    /**
+     * The fraction of a stored token's lifetime after which it is refreshed in the background,
+     * or 0 if stored tokens aren't refreshed
+     */
+    val refreshFraction: Float,
+    /**
+     * How long pre-generated PKCE parameters may wait in the pool before they are discarded, in milliseconds
+     */
+    val pkceMaxAgeMillis: Long,
+    /**
+     * The authorization endpoint the browser flow opens instead of the Spotify accounts service,
+     * or null. Only set by benchmarks.
+     */
+    internal val accountsUri: Uri?
+) {
+
+    /**
+     * Use this builder to create an [AuthorizationConfig]
+     *
+     * @see AuthorizationConfig
+     */
+    class Builder {
+        private var preconnectTokenEndpoint = false
+        private var executor: Executor? = null
+        private var storeTokens = false
+        private var refreshFraction = 0f
+        private var pkceMaxAgeMillis = PKCEPool.DEFAULT_MAX_AGE_MS
+        private var accountsUri: Uri? = null
+
+        /**
+         * Enables connecting to the token endpoint while the auth UI is shown. Disabled by default.
+         *
+         * @param preconnectTokenEndpoint True to pre-connect
+         * @return This builder instance for method chaining
+         */
+        fun setPreconnectTokenEndpoint(preconnectTokenEndpoint: Boolean) = apply {
+            this.preconnectTokenEndpoint = preconnectTokenEndpoint
+        }
+
+        /**
+         * Sets the executor that runs token exchanges, pre-connects and other blocking work.
+         * Use it to share a networking pool your app already has. The executor must not run
+         * tasks on the main thread.
+         *
+         * @param executor The executor, or null to use the library's own pool
+         * @return This builder instance for method chaining
+         */
+        fun setExecutor(executor: Executor?) = apply {
+            this.executor = executor
+        }
+
+        /**
+         * Adds the tokens returned by [LoginActivity] to [TokenStore], so later logins with the
+         * same client ID and scopes can be skipped with [TokenStore.getValidToken]. Disabled by default.
+         *
+         * @param storeTokens True to store tokens
+         * @return This builder instance for method chaining
+         */
+        fun setStoreTokens(storeTokens: Boolean) = apply {
+            this.storeTokens = storeTokens
+        }
+
+        /**
+         * Refreshes the tokens in [TokenStore] that have a refresh token once `refreshFraction`
+         * of their lifetime has passed, plus or minus a small random jitter. For example, with 0.75
+         * a token that is valid for an hour is refreshed after about 45 minutes. Refreshes are
+         * paused while the device is offline. Disabled by default.
+         *
+         * @param refreshFraction A value between 0 and 1, or 0 to disable background refreshes
+         * @return This builder instance for method chaining
+         * @throws IllegalArgumentException if `refreshFraction` is negative or not below 1
+         */
+        fun setRefreshFraction(refreshFraction: Float) = apply {
+            require(refreshFraction >= 0f && refreshFraction < 1f) { "Refresh fraction must be at least 0 and below 1" }
+            this.refreshFraction = refreshFraction
+        }
+
+        /**
+         * Sets how long pre-generated PKCE parameters are kept before they are discarded unused.
+         * A shorter age limits how long a code verifier sits in memory, a longer one means the
+         * pool is refilled less often. Defaults to 10 minutes.
+         *
+         * @param pkceMaxAgeMillis The maximum age in milliseconds
+         * @return This builder instance for method chaining
+         * @throws IllegalArgumentException if `pkceMaxAgeMillis` is not positive
+         */
+        fun setPkceMaxAge(pkceMaxAgeMillis: Long) = apply {
+            require(pkceMaxAgeMillis > 0) { "PKCE max age must be positive" }
+            this.pkceMaxAgeMillis = pkceMaxAgeMillis
+        }
+
+        /**
+         * Makes the browser flow open a stand-in accounts service on the device instead of
+         * `https://accounts.spotify.com/authorize`. Only meant for the benchmark build of
+         * auth-sample, which logs in against the server that auth-macrobenchmark runs.
+         *
+         * @param accountsUri An http or https URI on 127.0.0.1 or localhost, or null for the
+         * Spotify accounts service
+         * @return This builder instance for method chaining
+         * @throws IllegalArgumentException if `accountsUri` is not on the loopback interface
+         */
+        @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+        fun setAccountsUri(accountsUri: Uri?) = apply {
+            require(
+                accountsUri == null ||
+                    (accountsUri.scheme == "http" || accountsUri.scheme == "https") &&
+                    (accountsUri.host == "127.0.0.1" || accountsUri.host == "localhost")
+            ) { "Accounts URI must be an http or https URI on 127.0.0.1 or localhost" }
+            this.accountsUri = accountsUri
+        }
+
+        fun build(): AuthorizationConfig {
+            return AuthorizationConfig(
+                preconnectTokenEndpoint,
+                executor,
+                storeTokens,
+                refreshFraction,
+                pkceMaxAgeMillis,
+                accountsUri
+            )
+        }
+    }
+
+    companion object {
+        @JvmField
+        val DEFAULT = Builder().build()
+    }
+}
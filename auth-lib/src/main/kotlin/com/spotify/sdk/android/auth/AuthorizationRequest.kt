@@ -22,7 +22,6 @@
 package com.spotify.sdk.android.auth
 
 import android.net.Uri
-import android.os.Bundle
 import android.os.Parcel
 import android.os.Parcelable
 import android.text.TextUtils
@@ -46,25 +45,30 @@ data class AuthorizationRequest internal constructor(
     val pkceInformation: PKCEInformation?
 ) : Parcelable {
 
-    @Suppress("DEPRECATION")
-    constructor(source: Parcel) : this(
+    constructor(source: Parcel) : this(source, readHeader(source))
+
+    /**
+     * Reads the fields in the order [writeToParcel] writes them. Sections whose flag is not set
+     * in `header` were left out.
+     */
+    private constructor(source: Parcel, header: Int) : this(
         clientId = source.readString() ?: throw IllegalStateException("clientId cannot be null in parcel"),
         responseType = source.readString() ?: throw IllegalStateException("responseType cannot be null in parcel"),
         redirectUri = source.readString() ?: throw IllegalStateException("redirectUri cannot be null in parcel"),
-        state = source.readString(),
-        scopes = source.createStringArray(),
-        showDialog = source.readByte() == 1.toByte(),
-        customParams = HashMap(),
-        campaign = source.readString(),
-        pkceInformation = source.readParcelable(PKCEInformation::class.java.classLoader)
-    ) {
-        val bundle = source.readBundle(javaClass.classLoader) ?: Bundle()
-        for (key in bundle.keySet()) {
-            bundle.getString(key)?.let { value ->
-                (customParams as HashMap)[key] = value
-            }
-        }
-    }
+        state = if (header and FLAG_STATE != 0) source.readString() else null,
+        scopes = if (header and FLAG_SCOPES != 0) ScopeSet.CREATOR.createFromParcel(source).toArray() else null,
+        showDialog = header and FLAG_SHOW_DIALOG != 0,
+        customParams = if (header and FLAG_CUSTOM_PARAMS != 0) readCustomParams(source) else emptyMap(),
+        campaign = if (header and FLAG_CAMPAIGN != 0) source.readString() else null,
+        pkceInformation = if (header and FLAG_PKCE != 0) readPkceInformation(source) else null
+    )
+
+    /**
+     * The requested scopes as a [ScopeSet], or null if no scopes were set. Equality, hashing,
+     * the Parcel encoding and the `scope` parameter all go through it, so [scopes] is only kept
+     * to return the caller's array.
+     */
+    val scopeSet: ScopeSet? = scopes?.let { ScopeSet.of(it) }
 
     fun getCustomParam(key: String): String? {
         return customParams[key]
@@ -78,12 +82,29 @@ data class AuthorizationRequest internal constructor(
 
     fun getMedium(): String = ANDROID_SDK
 
+    /**
+     * Built on first use. The request is immutable, so every call returns the same [Uri].
+     */
+    private val uri: Uri by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        buildUri(Uri.Builder().scheme(ACCOUNTS_SCHEME).authority(ACCOUNTS_AUTHORITY).appendPath(ACCOUNTS_PATH))
+    }
+
+    /**
+     * The URI built against [AuthorizationConfig.accountsUri], paired with that accounts URI
+     */
+    @Volatile
+    private var configuredUri: Pair<Uri, Uri>? = null
+
     fun toUri(): Uri {
-        val uriBuilder = Uri.Builder()
-        uriBuilder.scheme(ACCOUNTS_SCHEME)
-            .authority(ACCOUNTS_AUTHORITY)
-            .appendPath(ACCOUNTS_PATH)
-            .appendQueryParameter(AccountsQueryParameters.CLIENT_ID, clientId)
+        val accountsUri = AuthorizationClient.getConfig().accountsUri ?: return uri
+        configuredUri?.let { (base, built) ->
+            if (base == accountsUri) return built
+        }
+        return buildUri(accountsUri.buildUpon()).also { configuredUri = accountsUri to it }
+    }
+
+    private fun buildUri(uriBuilder: Uri.Builder): Uri {
+        uriBuilder.appendQueryParameter(AccountsQueryParameters.CLIENT_ID, clientId)
             .appendQueryParameter(AccountsQueryParameters.RESPONSE_TYPE, responseType)
             .appendQueryParameter(AccountsQueryParameters.REDIRECT_URI, redirectUri)
             .appendQueryParameter(AccountsQueryParameters.SHOW_DIALOG, showDialog.toString())
@@ -91,8 +112,8 @@ data class AuthorizationRequest internal constructor(
             .appendQueryParameter(AccountsQueryParameters.UTM_MEDIUM, getMedium())
             .appendQueryParameter(AccountsQueryParameters.UTM_CAMPAIGN, getCampaign())
 
-        if (scopes != null && scopes.isNotEmpty()) {
-            uriBuilder.appendQueryParameter(AccountsQueryParameters.SCOPE, scopesToString())
+        if (scopeSet != null && !scopeSet.isEmpty) {
+            uriBuilder.appendQueryParameter(AccountsQueryParameters.SCOPE, scopeSet.toString())
         }
 
         if (state != null) {
@@ -113,33 +134,49 @@ data class AuthorizationRequest internal constructor(
         return uriBuilder.build()
     }
 
-    private fun scopesToString(): String {
-        if (scopes == null) return ""
-        val concatScopes = StringBuilder()
-        for (scope in scopes) {
-            concatScopes.append(scope)
-            concatScopes.append(SCOPES_SEPARATOR)
-        }
-        return concatScopes.toString().trim()
-    }
-
     override fun describeContents(): Int = 0
 
+    /**
+     * Writes a flat, versioned encoding: a header with the format version and one flag per
+     * optional section, then the required strings, then only the sections that are set. Custom
+     * parameters are written as a count followed by key/value strings, the scopes as the bits
+     * and overflow list of their [ScopeSet], and the PKCE information as its three strings, so
+     * nothing has to be resolved through a class loader when reading.
+     */
     override fun writeToParcel(dest: Parcel, flags: Int) {
+        var header = PARCEL_VERSION
+        if (state != null) header = header or FLAG_STATE
+        if (scopeSet != null) header = header or FLAG_SCOPES
+        if (showDialog) header = header or FLAG_SHOW_DIALOG
+        if (customParams.isNotEmpty()) header = header or FLAG_CUSTOM_PARAMS
+        if (campaign != null) header = header or FLAG_CAMPAIGN
+        if (pkceInformation != null) header = header or FLAG_PKCE
+        dest.writeInt(header)
+
         dest.writeString(clientId)
         dest.writeString(responseType)
         dest.writeString(redirectUri)
-        dest.writeString(state)
-        dest.writeStringArray(scopes)
-        dest.writeByte(if (showDialog) 1 else 0)
-        dest.writeString(campaign)
-        dest.writeParcelable(pkceInformation, flags)
-
-        val bundle = Bundle()
-        for ((key, value) in customParams) {
-            bundle.putString(key, value)
+        if (state != null) {
+            dest.writeString(state)
+        }
+        if (scopeSet != null) {
+            scopeSet.writeToParcel(dest, flags)
+        }
+        if (customParams.isNotEmpty()) {
+            dest.writeInt(customParams.size)
+            for ((key, value) in customParams) {
+                dest.writeString(key)
+                dest.writeString(value)
+            }
+        }
+        if (campaign != null) {
+            dest.writeString(campaign)
+        }
+        if (pkceInformation != null) {
+            dest.writeString(pkceInformation.verifier)
+            dest.writeString(pkceInformation.challenge)
+            dest.writeString(pkceInformation.codeChallengeMethod)
         }
-        dest.writeBundle(bundle)
     }
 
     override fun equals(other: Any?): Boolean {
@@ -152,10 +189,7 @@ data class AuthorizationRequest internal constructor(
         if (responseType != other.responseType) return false
         if (redirectUri != other.redirectUri) return false
         if (state != other.state) return false
-        if (scopes != null) {
-            if (other.scopes == null) return false
-            if (!scopes.contentEquals(other.scopes)) return false
-        } else if (other.scopes != null) return false
+        if (scopeSet != other.scopeSet) return false
         if (showDialog != other.showDialog) return false
         if (customParams != other.customParams) return false
         if (campaign != other.campaign) return false
@@ -169,7 +203,7 @@ data class AuthorizationRequest internal constructor(
         result = 31 * result + responseType.hashCode()
         result = 31 * result + redirectUri.hashCode()
         result = 31 * result + (state?.hashCode() ?: 0)
-        result = 31 * result + (scopes?.contentHashCode() ?: 0)
+        result = 31 * result + (scopeSet?.hashCode() ?: 0)
         result = 31 * result + showDialog.hashCode()
         result = 31 * result + customParams.hashCode()
         result = 31 * result + (campaign?.hashCode() ?: 0)
@@ -206,6 +240,14 @@ data class AuthorizationRequest internal constructor(
             this.scopes = scopes
         }
 
+        /**
+         * Sets the scopes from a [ScopeSet]. [AuthorizationRequest.scopes] then lists them in
+         * the canonical order of the set.
+         */
+        fun setScopeSet(scopeSet: ScopeSet?) = apply {
+            this.scopes = scopeSet?.toArray()
+        }
+
         fun setShowDialog(showDialog: Boolean) = apply {
             this.showDialog = showDialog
         }
@@ -232,7 +274,7 @@ data class AuthorizationRequest internal constructor(
                 state,
                 scopes,
                 showDialog,
-                customParams,
+                HashMap(customParams),
                 campaign,
                 pkceInformation
             )
@@ -249,6 +291,43 @@ data class AuthorizationRequest internal constructor(
         @VisibleForTesting
         const val ANDROID_SDK = "android-sdk"
 
+        /** Stored in the low byte of the parcel header. Bump it when the layout changes. */
+        private const val PARCEL_VERSION = 1
+        private const val VERSION_MASK = 0xff
+        private const val FLAG_STATE = 1 shl 8
+        private const val FLAG_SCOPES = 1 shl 9
+        private const val FLAG_SHOW_DIALOG = 1 shl 10
+        private const val FLAG_CUSTOM_PARAMS = 1 shl 11
+        private const val FLAG_CAMPAIGN = 1 shl 12
+        private const val FLAG_PKCE = 1 shl 13
+
+        private fun readHeader(source: Parcel): Int {
+            val header = source.readInt()
+            val version = header and VERSION_MASK
+            check(version == PARCEL_VERSION) { "Unsupported AuthorizationRequest parcel version $version" }
+            return header
+        }
+
+        private fun readCustomParams(source: Parcel): Map<String, String> {
+            val size = source.readInt()
+            val customParams = HashMap<String, String>(size * 2)
+            for (i in 0 until size) {
+                val key = source.readString() ?: throw IllegalStateException("custom parameter key cannot be null in parcel")
+                val value = source.readString() ?: throw IllegalStateException("custom parameter value cannot be null in parcel")
+                customParams[key] = value
+            }
+            return customParams
+        }
+
+        private fun readPkceInformation(source: Parcel): PKCEInformation {
+            return PKCEInformation(
+                verifier = source.readString() ?: throw IllegalStateException("PKCE verifier cannot be null in parcel"),
+                challenge = source.readString() ?: throw IllegalStateException("PKCE challenge cannot be null in parcel"),
+                codeChallengeMethod = source.readString()
+                    ?: throw IllegalStateException("PKCE code challenge method cannot be null in parcel")
+            )
+        }
+
         @JvmField
         val CREATOR = object : Parcelable.Creator<AuthorizationRequest> {
             override fun createFromParcel(source: Parcel): AuthorizationRequest {
@@ -159,53 +159,30 @@ data class AuthorizationResponse internal constructor(
                 return builder.build()
             }
 
-            val possibleError = uri.getQueryParameter(AccountsQueryParameters.ERROR)
-            if (possibleError != null) {
-                val state = uri.getQueryParameter(AccountsQueryParameters.STATE)
-                builder.setError(possibleError)
-                builder.setState(state)
-                builder.setType(Type.ERROR)
-                return builder.build()
-            }
+            val encodedQuery = uri.encodedQuery
+            if (encodedQuery != null) {
+                val query = RedirectUriParameters.fromQuery(encodedQuery)
+                if (query.contains(RedirectUriParameters.ERROR)) {
+                    builder.setError(query[RedirectUriParameters.ERROR])
+                    builder.setState(query[RedirectUriParameters.STATE])
+                    builder.setType(Type.ERROR)
+                    return builder.build()
+                }
 
-            val possibleCode = uri.getQueryParameter(AccountsQueryParameters.CODE)
-            if (possibleCode != null) {
-                val state = uri.getQueryParameter(AccountsQueryParameters.STATE)
-                builder.setCode(possibleCode)
-                builder.setState(state)
-                builder.setType(Type.CODE)
-                return builder.build()
+                if (query.contains(RedirectUriParameters.CODE)) {
+                    builder.setCode(query[RedirectUriParameters.CODE])
+                    builder.setState(query[RedirectUriParameters.STATE])
+                    builder.setType(Type.CODE)
+                    return builder.build()
+                }
             }
 
-            val possibleImplicit = uri.encodedFragment
-            if (possibleImplicit != null && possibleImplicit.isNotEmpty()) {
-                val parts = possibleImplicit.split("&")
-                var accessToken: String? = null
-                var state: String? = null
-                var expiresIn: String? = null
-                for (part in parts) {
-                    val partSplit = part.split("=")
-                    if (partSplit.size == 2) {
-                        if (partSplit[0].startsWith(AccountsQueryParameters.ACCESS_TOKEN)) {
-                            accessToken = Uri.decode(partSplit[1])
-                        }
-                        if (partSplit[0].startsWith(AccountsQueryParameters.STATE)) {
-                            state = Uri.decode(partSplit[1])
-                        }
-                        if (partSplit[0].startsWith(AccountsQueryParameters.EXPIRES_IN)) {
-                            expiresIn = Uri.decode(partSplit[1])
-                        }
-                    }
-                }
-                builder.setAccessToken(accessToken)
-                builder.setState(state)
-                if (expiresIn != null) {
-                    try {
-                        builder.setExpiresIn(expiresIn.toInt())
-                    } catch (e: NumberFormatException) {
-                        // Ignore
-                    }
-                }
+            val encodedFragment = uri.encodedFragment
+            if (encodedFragment != null && encodedFragment.isNotEmpty()) {
+                val fragment = RedirectUriParameters.fromFragment(encodedFragment)
+                builder.setAccessToken(fragment[RedirectUriParameters.ACCESS_TOKEN])
+                builder.setState(fragment[RedirectUriParameters.STATE])
+                fragment[RedirectUriParameters.EXPIRES_IN]?.toIntOrNull()?.let { builder.setExpiresIn(it) }
                 builder.setType(Type.TOKEN)
                 return builder.build()
             }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import android.util.Log
+
+/**
+ * Tells [TokenRefreshScheduler] whether the device is online, using [ConnectivityManager].
+ * If the network state can't be read the device is assumed to be online, and failed refreshes
+ * are retried on a timer instead.
+ */
+internal class ConnectivityNetworkMonitor(context: Context) : TokenRefreshScheduler.NetworkMonitor {
+
+    private val connectivityManager =
+        context.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager?
+    private var networkCallback: ConnectivityManager.NetworkCallback? = null
+
+    override fun isOnline(): Boolean {
+        val manager = connectivityManager ?: return true
+        return try {
+            @Suppress("DEPRECATION")
+            manager.activeNetworkInfo?.isConnected == true
+        } catch (e: SecurityException) {
+            true
+        }
+    }
+
+    @Synchronized
+    override fun waitForNetwork(onAvailable: Runnable) {
+        val manager = connectivityManager ?: return
+        if (networkCallback != null) {
+            return
+        }
+        val callback = object : ConnectivityManager.NetworkCallback() {
+            override fun onAvailable(network: Network) {
+                synchronized(this@ConnectivityNetworkMonitor) {
+                    if (networkCallback !== this) {
+                        return
+                    }
+                    networkCallback = null
+                }
+                manager.unregisterNetworkCallback(this)
+                onAvailable.run()
+            }
+        }
+        val request = NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build()
+        try {
+            manager.registerNetworkCallback(request, callback)
+            networkCallback = callback
+        } catch (e: RuntimeException) {
+            // SecurityException without ACCESS_NETWORK_STATE, or too many callbacks registered
+            Log.w(TAG, "Failed to wait for a network", e)
+        }
+    }
+
+    companion object {
+        private val TAG = ConnectivityNetworkMonitor::class.java.simpleName
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.security.MessageDigest
+import java.security.NoSuchAlgorithmException
+
+/**
+ * Hands out thread-confined [MessageDigest] instances so the provider lookup in
+ * [MessageDigest.getInstance] runs once per thread instead of once per hash.
+ * Each thread also gets scratch input and output buffers, so callers can hash without
+ * allocating intermediate arrays. Scratch buffers are overwritten by the next call on the same thread.
+ */
+internal class DigestProvider private constructor(
+    private val algorithm: String,
+    val digestLength: Int
+) {
+
+    private val digests = object : ThreadLocal<MessageDigest>() {
+        override fun initialValue(): MessageDigest = MessageDigest.getInstance(algorithm)
+    }
+
+    private val outputBuffers = object : ThreadLocal<ByteArray>() {
+        override fun initialValue(): ByteArray = ByteArray(digestLength)
+    }
+
+    private val inputBuffers = object : ThreadLocal<ByteArray>() {
+        override fun initialValue(): ByteArray = ByteArray(INITIAL_INPUT_BUFFER_SIZE)
+    }
+
+    /**
+     * Returns the calling thread's digest in its initial state.
+     */
+    @Throws(NoSuchAlgorithmException::class)
+    fun acquire(): MessageDigest {
+        val digest = digests.get() ?: throw NoSuchAlgorithmException(algorithm)
+        digest.reset()
+        return digest
+    }
+
+    /**
+     * Hashes `input[offset, offset + length)` and writes the digest to `out` starting at `outOffset`.
+     *
+     * @return The number of bytes written, always [digestLength]
+     */
+    @Throws(NoSuchAlgorithmException::class)
+    fun hashInto(input: ByteArray, offset: Int, length: Int, out: ByteArray, outOffset: Int): Int {
+        val digest = acquire()
+        digest.update(input, offset, length)
+        return digest.digest(out, outOffset, digestLength)
+    }
+
+    @Throws(NoSuchAlgorithmException::class)
+    fun hashInto(input: ByteArray, out: ByteArray, outOffset: Int): Int {
+        return hashInto(input, 0, input.size, out, outOffset)
+    }
+
+    /**
+     * Returns the calling thread's output buffer of [digestLength] bytes.
+     */
+    fun outputBuffer(): ByteArray = outputBuffers.get() ?: ByteArray(digestLength)
+
+    /**
+     * Returns the calling thread's input buffer with room for at least `minSize` bytes.
+     */
+    fun inputBuffer(minSize: Int): ByteArray {
+        val buffer = inputBuffers.get()
+        if (buffer != null && buffer.size >= minSize) {
+            return buffer
+        }
+        return ByteArray(minSize).also { inputBuffers.set(it) }
+    }
+
+    /**
+     * Writes `value` into the calling thread's input buffer if it is pure ASCII.
+     *
+     * @return The number of bytes written, or -1 if `value` contains non-ASCII characters
+     */
+    fun writeAscii(value: CharSequence): Int {
+        val buffer = inputBuffer(value.length)
+        for (i in 0 until value.length) {
+            val c = value[i]
+            if (c.code >= 0x80) {
+                return -1
+            }
+            buffer[i] = c.code.toByte()
+        }
+        return value.length
+    }
+
+    companion object {
+        private const val INITIAL_INPUT_BUFFER_SIZE = 256
+
+        @JvmField
+        val SHA1 = DigestProvider("SHA-1", 20)
+
+        @JvmField
+        val SHA256 = DigestProvider("SHA-256", 32)
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.util.AtomicFile
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.security.GeneralSecurityException
+
+/**
+ * The on-disk back of [TokenStore]: a single file encrypted with a [TokenCipher].
+ * Writes go through [AtomicFile], so a crash while writing leaves the previous contents in place.
+ *
+ * Every cipher failure is reported as an [IOException]. The Android Keystore signals a broken or
+ * locked keystore with unchecked exceptions such as [java.security.ProviderException], which would
+ * otherwise escape [TokenStore] lookups and crash the thread that writes the file.
+ */
+internal class EncryptedTokenFile(
+    file: File,
+    private val cipher: TokenCipher
+) : TokenStore.Persistence {
+
+    private val atomicFile = AtomicFile(file)
+
+    @Throws(IOException::class)
+    override fun read(): ByteArray? {
+        val ciphertext = try {
+            atomicFile.readFully()
+        } catch (e: FileNotFoundException) {
+            return null
+        }
+        return try {
+            cipher.decrypt(ciphertext)
+        } catch (e: GeneralSecurityException) {
+            throw IOException("Failed to decrypt the token store", e)
+        } catch (e: RuntimeException) {
+            throw IOException("Failed to decrypt the token store", e)
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun write(data: ByteArray) {
+        val ciphertext = try {
+            cipher.encrypt(data)
+        } catch (e: GeneralSecurityException) {
+            throw IOException("Failed to encrypt the token store", e)
+        } catch (e: RuntimeException) {
+            throw IOException("Failed to encrypt the token store", e)
+        }
+        val stream = atomicFile.startWrite()
+        try {
+            stream.write(ciphertext)
+            atomicFile.finishWrite(stream)
+        } catch (e: IOException) {
+            atomicFile.failWrite(stream)
+            throw e
+        }
+    }
+
+    override fun delete() {
+        atomicFile.delete()
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.io.UnsupportedEncodingException
+import java.net.URLEncoder
+
+/**
+ * Builds an `application/x-www-form-urlencoded` request body in a single [StringBuilder].
+ *
+ * Values are encoded as [URLEncoder.encode] does with UTF-8. Values made only of characters that
+ * URLEncoder leaves as they are, which covers client IDs, codes, verifiers and most tokens, are
+ * appended without going through it. Names are expected to need no encoding.
+ */
+internal class FormBody {
+
+    private val builder = StringBuilder(INITIAL_CAPACITY)
+
+    fun add(name: String, value: String): FormBody = apply {
+        if (builder.isNotEmpty()) {
+            builder.append('&')
+        }
+        builder.append(name).append('=')
+        appendEncoded(value)
+    }
+
+    private fun appendEncoded(value: String) {
+        for (i in 0 until value.length) {
+            if (!isSafe(value[i])) {
+                try {
+                    builder.append(URLEncoder.encode(value, "UTF-8"))
+                } catch (e: UnsupportedEncodingException) {
+                    // This should never happen with UTF-8
+                    throw RuntimeException("Failed to encode request parameters", e)
+                }
+                return
+            }
+        }
+        builder.append(value)
+    }
+
+    override fun toString(): String = builder.toString()
+
+    private companion object {
+        const val INITIAL_CAPACITY = 256
+
+        fun isSafe(c: Char): Boolean {
+            return c in 'a'..'z' || c in 'A'..'Z' || c in '0'..'9' ||
+                    c == '-' || c == '_' || c == '.' || c == '*'
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.CancellationSignal
+import java.io.IOException
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.net.URL
+import javax.net.ssl.HttpsURLConnection
+import javax.net.ssl.SSLSocketFactory
+
+/**
+ * A [TokenTransport] built on [HttpURLConnection].
+ *
+ * Connections are never disconnected after a successful exchange, and response bodies are
+ * read to the end as long as they are no larger than [TokenResponseParser.MAX_BODY_BYTES]. That way the socket goes back to the platform keep-alive pool, and a token
+ * exchange followed shortly by a refresh reuses the same TCP connection and TLS session instead
+ * of paying for DNS, TCP and TLS again. [preconnect] uses the same pool: it completes a `HEAD`
+ * request so the connection stays idle in the pool until the platform's keep-alive timeout.
+ *
+ * Cancelling a request disconnects its connection, which makes a blocked read or write fail
+ * right away instead of waiting for the timeout.
+ *
+ * @param sslSocketFactory Socket factory for HTTPS connections, or null for the platform default.
+ * The same factory must be used across requests for TLS sessions to be resumed.
+ * @param connectTimeoutMs Connect timeout in milliseconds
+ * @param readTimeoutMs Read timeout in milliseconds
+ */
+class HttpUrlConnectionTransport @JvmOverloads constructor(
+    private val sslSocketFactory: SSLSocketFactory? = null,
+    private val connectTimeoutMs: Int = DEFAULT_TIMEOUT_MS,
+    private val readTimeoutMs: Int = DEFAULT_TIMEOUT_MS
+) : TokenTransport, TokenTransport.Preconnectable {
+
+    @Throws(IOException::class)
+    override fun <T> post(
+        url: String,
+        formBody: ByteArray,
+        cancellationSignal: CancellationSignal?,
+        reader: TokenTransport.ResponseReader<T>
+    ): T {
+        val connection = URL(url).openConnection() as HttpURLConnection
+        cancellationSignal?.setOnCancelListener { connection.disconnect() }
+        var reusable = false
+        try {
+            cancellationSignal?.throwIfCanceled()
+            if (sslSocketFactory != null && connection is HttpsURLConnection) {
+                connection.sslSocketFactory = sslSocketFactory
+            }
+            connection.requestMethod = "POST"
+            connection.setRequestProperty("Content-Type", CONTENT_TYPE_FORM)
+            connection.doOutput = true
+            connection.setFixedLengthStreamingMode(formBody.size)
+            connection.connectTimeout = connectTimeoutMs
+            connection.readTimeout = readTimeoutMs
+
+            connection.outputStream.use { outputStream ->
+                outputStream.write(formBody)
+            }
+
+            val statusCode = connection.responseCode
+            val body = if (statusCode >= 400) connection.errorStream else connection.inputStream
+            if (body == null) {
+                val result = reader.read(statusCode, null)
+                reusable = true
+                return result
+            }
+            body.use {
+                val result = reader.read(statusCode, it)
+                reusable = drain(it)
+                return result
+            }
+        } finally {
+            cancellationSignal?.setOnCancelListener(null)
+            if (!reusable) {
+                // Don't hand a broken or partly read connection back to the pool
+                connection.disconnect()
+            }
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun preconnect(url: String) {
+        val connection = URL(url).openConnection() as HttpURLConnection
+        var reusable = false
+        try {
+            if (sslSocketFactory != null && connection is HttpsURLConnection) {
+                connection.sslSocketFactory = sslSocketFactory
+            }
+            connection.requestMethod = "HEAD"
+            connection.connectTimeout = connectTimeoutMs
+            connection.readTimeout = readTimeoutMs
+
+            val statusCode = connection.responseCode
+            val body = if (statusCode >= 400) connection.errorStream else connection.inputStream
+            reusable = body?.use { drain(it) } ?: true
+        } finally {
+            if (!reusable) {
+                connection.disconnect()
+            }
+        }
+    }
+
+    /**
+     * Reads what is left of `stream` so the connection can be reused.
+     *
+     * @return True if the end was reached within [TokenResponseParser.MAX_BODY_BYTES], false if
+     * the rest was too long to be worth reading and the connection should be disconnected instead
+     */
+    private fun drain(stream: InputStream): Boolean {
+        val buffer = ByteArray(DRAIN_BUFFER_SIZE)
+        var remaining = TokenResponseParser.MAX_BODY_BYTES
+        while (remaining >= 0) {
+            val read = stream.read(buffer)
+            if (read == -1) {
+                return true
+            }
+            remaining -= read
+        }
+        return false
+    }
+
+    companion object {
+        const val DEFAULT_TIMEOUT_MS = 10000 // 10 seconds
+        private const val CONTENT_TYPE_FORM = "application/x-www-form-urlencoded"
+        private const val DRAIN_BUFFER_SIZE = 512
+    }
+}
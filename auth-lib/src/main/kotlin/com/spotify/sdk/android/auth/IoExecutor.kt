@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * The executors for the library's blocking work.
+ *
+ * Token exchanges the user is waiting for run on [default], a small pool of daemon threads that
+ * is shared by all logins. Work nobody waits for, such as warm-up, pre-connecting, PKCE
+ * pre-generation, [TokenStore] persistence and background refreshes, runs on [background], a
+ * single thread of its own, so a slow disk read or connection never queues up in front of an
+ * exchange. Idle threads time out, so neither costs anything between logins.
+ *
+ * An executor the app provides through [AuthorizationConfig.Builder.setExecutor] replaces both.
+ */
+internal object IoExecutor {
+
+    private const val MAX_THREADS = 2
+    private const val KEEP_ALIVE_SECONDS = 30L
+
+    val default: ThreadPoolExecutor by lazy {
+        ThreadPoolExecutor(
+            MAX_THREADS,
+            MAX_THREADS,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            LinkedBlockingQueue(),
+            DaemonThreadFactory("spotify-auth-io")
+        ).apply { allowCoreThreadTimeOut(true) }
+    }
+
+    val background: ThreadPoolExecutor by lazy {
+        ThreadPoolExecutor(
+            1,
+            1,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            LinkedBlockingQueue(),
+            DaemonThreadFactory("spotify-auth-background")
+        ).apply { allowCoreThreadTimeOut(true) }
+    }
+
+    /**
+     * Returns the executor from the current [AuthorizationConfig], or the library's own pool.
+     */
+    fun current(): Executor {
+        return AuthorizationClient.getConfig().executor ?: default
+    }
+
+    /**
+     * Runs `task` on the [current] executor.
+     */
+    fun execute(task: Runnable) {
+        current().execute(task)
+    }
+
+    /**
+     * Returns the executor from the current [AuthorizationConfig], or the library's background thread.
+     */
+    fun currentBackground(): Executor {
+        return AuthorizationClient.getConfig().executor ?: background
+    }
+
+    /**
+     * Runs `task` on the [currentBackground] executor.
+     */
+    fun executeInBackground(task: Runnable) {
+        currentBackground().execute(task)
+    }
+
+    private class DaemonThreadFactory(private val prefix: String) : ThreadFactory {
+        private val count = AtomicInteger()
+
+        override fun newThread(runnable: Runnable): Thread {
+            return Thread(runnable, "$prefix-${count.incrementAndGet()}").apply { isDaemon = true }
+        }
+    }
+}
@@ -25,12 +25,14 @@ import android.app.Activity
 import android.content.Intent
 import android.net.Uri
 import android.os.Bundle
+import android.os.CancellationSignal
 import android.os.Handler
 import android.os.Looper
 import android.util.Log
+import androidx.annotation.RestrictTo
+import androidx.annotation.VisibleForTesting
 import com.spotify.sdk.android.auth.AuthorizationResponse.Type
-import java.util.concurrent.ExecutorService
-import java.util.concurrent.Executors
+import com.spotify.sdk.android.auth.app.SpotifyAppInfo
 
 /**
  * The activity that manages the login flow.
@@ -40,77 +42,89 @@ import java.util.concurrent.Executors
 class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListener {
 
     private val authorizationClient = AuthorizationClient(this)
-    private val executorService: ExecutorService = Executors.newSingleThreadExecutor()
     private val mainHandler = Handler(Looper.getMainLooper())
+    private var pendingTokenExchange: CancellationSignal? = null
+    // The response of the PKCE code exchange, stored as is so the granted scopes are kept
+    private var tokenExchangeResponse: TokenExchangeResponse? = null
     private var authInProgress = false
 
     override fun onNewIntent(intent: Intent) {
-        val originalRequest = getRequestFromIntent()
-        super.onNewIntent(intent)
-        val responseUri = intent.data
+        AuthTrace.begin(AuthTrace.LOGIN_ACTIVITY_NEW_INTENT)
+        try {
+            val originalRequest = getRequestFromIntent()
+            super.onNewIntent(intent)
+            val responseUri = intent.data
 
-        authInProgress = false
+            authInProgress = false
 
-        // Clear auth-in-progress state to prevent onResume from thinking user canceled
-        if (responseUri != null) {
-            authorizationClient.clearAuthInProgress()
-        }
+            // Clear auth-in-progress state to prevent onResume from thinking user canceled
+            if (responseUri != null) {
+                authorizationClient.clearAuthInProgress()
+            }
 
-        val response = AuthorizationResponse.fromUri(responseUri)
-
-        // Check if this is a CODE response from web fallback that needs token exchange
-        if (response.type == Type.CODE) {
-            // Check if original request was for TOKEN and has PKCE info
-            response.code?.let { code ->
-                if (originalRequest != null &&
-                    originalRequest.responseType == Type.TOKEN.toString() &&
-                    originalRequest.pkceInformation != null
-                ) {
-                    // Perform PKCE token exchange for web fallback
-                    val responseBuilder = AuthorizationResponse.Builder()
-                        .setType(Type.TOKEN)
-                        .setState(response.state)
-
-                    performPkceTokenExchange(code, originalRequest, responseBuilder)
-                    return // Don't complete immediately, wait for async result
+            val response = AuthorizationResponse.fromUri(responseUri)
+
+            // Check if this is a CODE response from web fallback that needs token exchange
+            if (response.type == Type.CODE) {
+                // Check if original request was for TOKEN and has PKCE info
+                response.code?.let { code ->
+                    if (originalRequest != null &&
+                        originalRequest.responseType == Type.TOKEN.toString() &&
+                        originalRequest.pkceInformation != null
+                    ) {
+                        // Perform PKCE token exchange for web fallback
+                        val responseBuilder = AuthorizationResponse.Builder()
+                            .setType(Type.TOKEN)
+                            .setState(response.state)
+
+                        performPkceTokenExchange(code, originalRequest, responseBuilder)
+                        return // Don't complete immediately, wait for async result
+                    }
                 }
             }
-        }
 
-        // Handle normal responses (TOKEN from web, errors, etc.)
-        authorizationClient.complete(response)
+            // Handle normal responses (TOKEN from web, errors, etc.)
+            authorizationClient.complete(response)
+        } finally {
+            AuthTrace.end()
+        }
     }
 
     override fun onCreate(savedInstanceState: Bundle?) {
-        super.onCreate(savedInstanceState)
-        setContentView(R.layout.com_spotify_sdk_login_activity)
-
-        val request = getRequestFromIntent()
-
-        authorizationClient.setOnCompleteListener(this)
-
-        if (callingActivity == null) {
-            Log.e(TAG, NO_CALLER_ERROR)
-            finish()
-        } else if (request == null) {
-            Log.e(TAG, NO_REQUEST_ERROR)
-            setResult(RESULT_CANCELED)
-            finish()
-        } else if (savedInstanceState == null) {
-            Log.d(TAG, String.format("Spotify Auth starting with the request [%s]", request.toUri().toString()))
-            authorizationClient.authorize(request)
-            authInProgress = true
-        } else {
-            authInProgress = savedInstanceState.getBoolean(KEY_AUTH_IN_PROGRESS, false)
-            if (authInProgress) {
-                val responseUri = intent.data
-                if (responseUri != null) {
-                    authInProgress = false
-                    authorizationClient.clearAuthInProgress()
-                    val response = AuthorizationResponse.fromUri(responseUri)
-                    authorizationClient.complete(response)
+        AuthTrace.begin(AuthTrace.LOGIN_ACTIVITY_CREATE)
+        try {
+            super.onCreate(savedInstanceState)
+            setContentView(R.layout.com_spotify_sdk_login_activity)
+
+            val request = getRequestFromIntent()
+
+            authorizationClient.setOnCompleteListener(this)
+
+            if (callingActivity == null) {
+                Log.e(TAG, NO_CALLER_ERROR)
+                finish()
+            } else if (request == null) {
+                Log.e(TAG, NO_REQUEST_ERROR)
+                setResult(RESULT_CANCELED)
+                finish()
+            } else if (savedInstanceState == null) {
+                Log.d(TAG, String.format("Spotify Auth starting with the request [%s]", request.toUri().toString()))
+                authorizationClient.authorize(request, getSpotifyAppInfoFromIntent())
+                authInProgress = true
+            } else {
+                authInProgress = savedInstanceState.getBoolean(KEY_AUTH_IN_PROGRESS, false)
+                if (authInProgress) {
+                    val responseUri = intent.data
+                    if (responseUri != null) {
+                        authInProgress = false
+                        authorizationClient.clearAuthInProgress()
+                        val response = AuthorizationResponse.fromUri(responseUri)
+                        authorizationClient.complete(response)
+                    }
                 }
             }
+        } finally {
+            AuthTrace.end()
         }
     }
 
@@ -124,6 +138,11 @@ class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListene
         return requestBundle.getParcelable(REQUEST_KEY)
     }
 
+    private fun getSpotifyAppInfoFromIntent(): SpotifyAppInfo? {
+        val requestBundle = intent.getBundleExtra(EXTRA_AUTH_REQUEST) ?: return null
+        return requestBundle.getParcelable(SPOTIFY_APP_INFO_KEY)
+    }
+
     override fun onResume() {
         super.onResume()
         if (authInProgress && !authorizationClient.hasHandlerWithPendingAuth()) {
@@ -135,11 +154,26 @@ class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListene
         }
     }
 
+    override fun onStop() {
+        super.onStop()
+        // Only the first stop after openLoginActivity ends it, later ones are ignored
+        AuthTrace.endAsync(AuthTrace.TIME_TO_AUTH_UI)
+    }
+
     override fun onDestroy() {
-        authorizationClient.cancel()
-        authorizationClient.setOnCompleteListener(null)
-        executorService.shutdown()
-        super.onDestroy()
+        AuthTrace.begin(AuthTrace.LOGIN_ACTIVITY_DESTROY)
+        try {
+            authorizationClient.cancel()
+            authorizationClient.setOnCompleteListener(null)
+            // Abort an exchange that is still running so it doesn't hold the thread and connection
+            pendingTokenExchange?.cancel()
+            pendingTokenExchange = null
+            super.onDestroy()
+        } finally {
+            // In case the redirect arrived but no response was returned
+            AuthTrace.endAsync(AuthTrace.TIME_TO_RESPONSE)
+            AuthTrace.end()
+        }
     }
 
     @Deprecated("Deprecated in Java")
@@ -219,6 +253,17 @@ class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListene
     }
 
     override fun onClientComplete(response: AuthorizationResponse) {
+        if (response.type == Type.TOKEN && AuthorizationClient.getConfig().storeTokens) {
+            getRequestFromIntent()?.let { request ->
+                val exchangeResponse = tokenExchangeResponse
+                if (exchangeResponse != null) {
+                    TokenStore.getInstance(this).put(request.clientId, request.scopes, exchangeResponse)
+                } else {
+                    TokenStore.getInstance(this).put(request, response)
+                }
+            }
+        }
+
         val resultIntent = Intent()
 
         // Put response into a bundle to work around classloader problems on Samsung devices
@@ -237,6 +282,7 @@ class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListene
         }
 
         setResult(resultCode, resultIntent)
+        AuthTrace.endAsync(AuthTrace.TIME_TO_RESPONSE)
         finish()
     }
 
@@ -253,62 +299,62 @@ class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListene
     ) {
         Log.d(TAG, "Performing PKCE token exchange for code: $code")
 
-        executorService.execute {
-            try {
-                val pkceInfo = originalRequest.pkceInformation ?: run {
-                    mainHandler.post {
-                        responseBuilder.setType(Type.ERROR)
-                        responseBuilder.setError("PKCE information is missing")
-                        authorizationClient.setOnCompleteListener(this@LoginActivity)
-                        authorizationClient.complete(responseBuilder.build())
-                    }
-                    return@execute
-                }
-                val tokenRequest = TokenExchangeRequest.Builder()
-                    .setClientId(originalRequest.clientId)
-                    .setCode(code)
-                    .setRedirectUri(originalRequest.redirectUri)
-                    .setCodeVerifier(pkceInfo.verifier)
-                    .build()
-
-                val tokenResponse = tokenRequest.execute()
-
-                // Switch back to main thread to complete the response
-                mainHandler.post {
-                    if (tokenResponse.isSuccess) {
-                        // Convert to TOKEN response
-                        responseBuilder.setType(Type.TOKEN)
-                        responseBuilder.setAccessToken(tokenResponse.accessToken)
-                        responseBuilder.setExpiresIn(tokenResponse.expiresIn)
-                        responseBuilder.setRefreshToken(tokenResponse.refreshToken)
-                        Log.d(TAG, "PKCE token exchange successful")
-                    } else {
-                        // Convert to ERROR response
-                        responseBuilder.setType(Type.ERROR)
-                        val errorMsg = tokenResponse.error +
-                                if (tokenResponse.errorDescription != null)
-                                    ": " + tokenResponse.errorDescription
-                                else ""
-                        responseBuilder.setError(errorMsg)
-                        Log.e(TAG, "PKCE token exchange failed: $errorMsg")
-                    }
-
-                    // Complete the authorization flow
-                    authorizationClient.setOnCompleteListener(this@LoginActivity)
-                    authorizationClient.complete(responseBuilder.build())
-                }
+        val pkceInfo = originalRequest.pkceInformation
+        if (pkceInfo == null) {
+            responseBuilder.setType(Type.ERROR)
+            responseBuilder.setError("PKCE information is missing")
+            authorizationClient.setOnCompleteListener(this)
+            authorizationClient.complete(responseBuilder.build())
+            return
+        }
 
-            } catch (e: Exception) {
-                Log.e(TAG, "PKCE token exchange error", e)
+        val tokenRequest = try {
+            TokenExchangeRequest.Builder()
+                .setClientId(originalRequest.clientId)
+                .setCode(code)
+                .setRedirectUri(originalRequest.redirectUri)
+                .setCodeVerifier(pkceInfo.verifier)
+                .setTransport(tokenExchangeTransport)
+                .build()
+        } catch (e: IllegalArgumentException) {
+            Log.e(TAG, "PKCE token exchange error", e)
+            responseBuilder.setType(Type.ERROR)
+            responseBuilder.setError("Token exchange failed: " + e.message)
+            authorizationClient.setOnCompleteListener(this)
+            authorizationClient.complete(responseBuilder.build())
+            return
+        }
 
-                // Switch back to main thread to complete with error
-                mainHandler.post {
+        pendingTokenExchange = tokenRequest.executeAsync(IoExecutor.current()) { tokenResponse ->
+            // Switch back to main thread to complete the response
+            mainHandler.post {
+                if (isDestroyed) {
+                    return@post
+                }
+                pendingTokenExchange = null
+
+                if (tokenResponse.isSuccess) {
+                    tokenExchangeResponse = tokenResponse
+                    // Convert to TOKEN response
+                    responseBuilder.setType(Type.TOKEN)
+                    responseBuilder.setAccessToken(tokenResponse.accessToken)
+                    responseBuilder.setExpiresIn(tokenResponse.expiresIn)
+                    responseBuilder.setRefreshToken(tokenResponse.refreshToken)
+                    Log.d(TAG, "PKCE token exchange successful")
+                } else {
+                    // Convert to ERROR response
                     responseBuilder.setType(Type.ERROR)
-                    responseBuilder.setError("Token exchange failed: " + e.message)
-
-                    authorizationClient.setOnCompleteListener(this@LoginActivity)
-                    authorizationClient.complete(responseBuilder.build())
+                    val errorMsg = tokenResponse.error +
+                            if (tokenResponse.errorDescription != null)
+                                ": " + tokenResponse.errorDescription
+                            else ""
+                    responseBuilder.setError(errorMsg)
+                    Log.e(TAG, "PKCE token exchange failed: $errorMsg")
                 }
+
+                // Complete the authorization flow
+                authorizationClient.setOnCompleteListener(this@LoginActivity)
+                authorizationClient.complete(responseBuilder.build())
             }
         }
     }
@@ -332,18 +378,35 @@ class LoginActivity : Activity(), AuthorizationClient.AuthorizationClientListene
         const val EXTRA_AUTH_REQUEST = "EXTRA_AUTH_REQUEST"
         const val EXTRA_AUTH_RESPONSE = "EXTRA_AUTH_RESPONSE"
         const val REQUEST_KEY = "request"
+        const val SPOTIFY_APP_INFO_KEY = "spotify_app_info"
         const val RESPONSE_KEY = "response"
 
         const val REQUEST_CODE = 1138
 
         private const val RESULT_ERROR = -2
 
+        /**
+         * The transport of the PKCE code exchange. Tests point it at a local token server.
+         */
+        @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+        @VisibleForTesting
         @JvmStatic
-        fun getAuthIntent(contextActivity: Activity, request: AuthorizationRequest): Intent {
+        var tokenExchangeTransport: TokenTransport = TokenRequest.DEFAULT_TRANSPORT
+
+        @JvmStatic
+        @JvmOverloads
+        fun getAuthIntent(
+            contextActivity: Activity,
+            request: AuthorizationRequest,
+            spotifyAppInfo: SpotifyAppInfo? = null
+        ): Intent {
             // Put request into a bundle to work around classloader problems on Samsung devices
             // https://stackoverflow.com/questions/28589509/android-e-parcel-class-not-found-when-unmarshalling-only-on-samsung-tab3
             val bundle = Bundle()
             bundle.putParcelable(REQUEST_KEY, request)
+            if (spotifyAppInfo != null) {
+                bundle.putParcelable(SPOTIFY_APP_INFO_KEY, spotifyAppInfo)
+            }
 
             val intent = Intent(contextActivity, LoginActivity::class.java)
             intent.putExtra(EXTRA_AUTH_REQUEST, bundle)
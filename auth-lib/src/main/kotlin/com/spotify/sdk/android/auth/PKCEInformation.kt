@@ -21,20 +21,50 @@
 
 package com.spotify.sdk.android.auth
 
+import android.os.Parcel
 import android.os.Parcelable
-import kotlinx.parcelize.Parcelize
 
-@Parcelize
+/**
+ * The PKCE parameters of an authorization request.
+ *
+ * The Parcelable implementation is written by hand rather than generated with Parcelize, so the
+ * class also compiles in the JVM benchmarks in auth-benchmarks. It writes the same three strings
+ * Parcelize did.
+ */
 data class PKCEInformation(
     val verifier: String,
     val challenge: String,
     val codeChallengeMethod: String
 ) : Parcelable {
 
+    override fun describeContents(): Int = 0
+
+    override fun writeToParcel(dest: Parcel, flags: Int) {
+        dest.writeString(verifier)
+        dest.writeString(challenge)
+        dest.writeString(codeChallengeMethod)
+    }
+
     companion object {
         @JvmStatic
         fun sha256(verifier: String, challenge: String): PKCEInformation {
             return PKCEInformation(verifier, challenge, "S256")
         }
+
+        @JvmField
+        val CREATOR = object : Parcelable.Creator<PKCEInformation> {
+            override fun createFromParcel(source: Parcel): PKCEInformation {
+                return PKCEInformation(
+                    verifier = source.readString() ?: throw IllegalStateException("verifier cannot be null in parcel"),
+                    challenge = source.readString() ?: throw IllegalStateException("challenge cannot be null in parcel"),
+                    codeChallengeMethod = source.readString()
+                        ?: throw IllegalStateException("codeChallengeMethod cannot be null in parcel")
+                )
+            }
+
+            override fun newArray(size: Int): Array<PKCEInformation?> {
+                return arrayOfNulls(size)
+            }
+        }
     }
 }
@@ -22,7 +22,6 @@
 package com.spotify.sdk.android.auth
 
 import android.util.Base64
-import java.security.MessageDigest
 import java.security.NoSuchAlgorithmException
 import java.security.SecureRandom
 
@@ -30,31 +29,58 @@ object PKCEInformationFactory {
 
     private const val CODE_VERIFIER_LENGTH = 128
     private const val CODE_VERIFIER_CHARSET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-._~"
+    private val CODE_VERIFIER_ALPHABET = CODE_VERIFIER_CHARSET.toByteArray(Charsets.US_ASCII)
+
+    /*
+     * Random bytes at or above this bound are rejected so that every character of the
+     * alphabet is equally likely: 198 is the largest multiple of 66 that fits in a byte.
+     */
+    private val REJECTION_BOUND = 256 - 256 % CODE_VERIFIER_ALPHABET.size
+
+    /*
+     * About 77% of random bytes are accepted. Requesting 1.5 bytes per character means a
+     * single nextBytes call is almost always enough.
+     */
+    private const val ENTROPY_BYTES = CODE_VERIFIER_LENGTH * 3 / 2
 
     @JvmStatic
     @Throws(NoSuchAlgorithmException::class)
     fun create(): PKCEInformation {
-        val codeVerifier = generateCodeVerifier()
-        val codeChallenge = generateCodeChallenge(codeVerifier)
-        return PKCEInformation.sha256(codeVerifier, codeChallenge)
+        val codeVerifier = ByteArray(CODE_VERIFIER_LENGTH)
+        generateCodeVerifier(SharedSecureRandom.instance, codeVerifier)
+        val codeChallenge = generateCodeChallenge(codeVerifier, 0, codeVerifier.size)
+        return PKCEInformation.sha256(String(codeVerifier, Charsets.US_ASCII), codeChallenge)
     }
 
-    private fun generateCodeVerifier(): String {
-        val secureRandom = SecureRandom()
-        val codeVerifier = StringBuilder()
-
-        for (i in 0 until CODE_VERIFIER_LENGTH) {
-            val randomIndex = secureRandom.nextInt(CODE_VERIFIER_CHARSET.length)
-            codeVerifier.append(CODE_VERIFIER_CHARSET[randomIndex])
+    /**
+     * Fills `out` with ASCII characters of the code verifier alphabet, drawing all entropy
+     * with one [SecureRandom.nextBytes] call in the common case.
+     */
+    private fun generateCodeVerifier(secureRandom: SecureRandom, out: ByteArray) {
+        val entropy = ByteArray(ENTROPY_BYTES)
+        var entropyIndex = entropy.size
+        var written = 0
+        while (written < out.size) {
+            if (entropyIndex == entropy.size) {
+                secureRandom.nextBytes(entropy)
+                entropyIndex = 0
+            }
+            val value = entropy[entropyIndex++].toInt() and 0xFF
+            if (value < REJECTION_BOUND) {
+                out[written++] = CODE_VERIFIER_ALPHABET[value % CODE_VERIFIER_ALPHABET.size]
+            }
         }
-
-        return codeVerifier.toString()
+        entropy.fill(0)
     }
 
+    /**
+     * Hashes the ASCII bytes of the code verifier straight into the SHA-256 digest.
+     */
     @Throws(NoSuchAlgorithmException::class)
-    private fun generateCodeChallenge(codeVerifier: String): String {
-        val digest = MessageDigest.getInstance("SHA-256")
-        val hash = digest.digest(codeVerifier.toByteArray(Charsets.US_ASCII))
-        return Base64.encodeToString(hash, Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP)
+    private fun generateCodeChallenge(codeVerifier: ByteArray, offset: Int, length: Int): String {
+        val sha256 = DigestProvider.SHA256
+        val hash = sha256.outputBuffer()
+        sha256.hashInto(codeVerifier, offset, length, hash, 0)
+        return Base64.encodeToString(hash, 0, sha256.digestLength, Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP)
     }
 }
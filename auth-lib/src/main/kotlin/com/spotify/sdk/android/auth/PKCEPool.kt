@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.SystemClock
+import android.util.Log
+import java.security.NoSuchAlgorithmException
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * A small bounded pool of ready [PKCEInformation] pairs that is refilled on a background executor.
+ *
+ * Generating a pair seeds a [java.security.SecureRandom] and runs SHA-256, which is too slow
+ * for the UI thread. With the pool, [take] is usually a single poll.
+ * Every pair is handed out at most once, and pairs older than `maxAgeMillis` are discarded.
+ */
+internal class PKCEPool(
+    private val capacity: Int,
+    val maxAgeMillis: Long,
+    private val executor: Executor,
+    private val clock: () -> Long
+) {
+
+    private class Entry(val pkceInformation: PKCEInformation, val createdAt: Long)
+
+    private val entries = ArrayBlockingQueue<Entry>(capacity)
+    private val refillScheduled = AtomicBoolean(false)
+
+    init {
+        require(capacity > 0) { "Capacity must be positive" }
+        require(maxAgeMillis > 0) { "Max age must be positive" }
+    }
+
+    /**
+     * Takes a fresh pair from the pool, or creates one on the calling thread if the pool is empty.
+     * A refill is scheduled in either case.
+     */
+    @Throws(NoSuchAlgorithmException::class)
+    fun take(): PKCEInformation {
+        val now = clock()
+        var entry = entries.poll()
+        while (entry != null && isExpired(entry, now)) {
+            entry = entries.poll()
+        }
+        scheduleRefill()
+        return entry?.pkceInformation ?: PKCEInformationFactory.create()
+    }
+
+    /**
+     * Schedules a refill so the next [take] doesn't have to generate a pair.
+     */
+    fun prefill() {
+        scheduleRefill()
+    }
+
+    /**
+     * The number of pairs currently waiting in the pool, including expired ones.
+     */
+    fun size(): Int = entries.size
+
+    private fun isExpired(entry: Entry, now: Long): Boolean = now - entry.createdAt > maxAgeMillis
+
+    private fun scheduleRefill() {
+        if (!refillScheduled.compareAndSet(false, true)) {
+            return
+        }
+        try {
+            executor.execute {
+                try {
+                    refill()
+                } finally {
+                    refillScheduled.set(false)
+                }
+            }
+        } catch (e: RejectedExecutionException) {
+            refillScheduled.set(false)
+        }
+    }
+
+    private fun refill() {
+        val now = clock()
+        val iterator = entries.iterator()
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next(), now)) {
+                iterator.remove()
+            }
+        }
+
+        try {
+            while (entries.remainingCapacity() > 0) {
+                entries.offer(Entry(PKCEInformationFactory.create(), clock()))
+            }
+        } catch (e: NoSuchAlgorithmException) {
+            Log.e(TAG, "Failed to pre-generate PKCE information", e)
+        }
+    }
+
+    companion object {
+        private const val TAG = "PKCEPool"
+        private const val DEFAULT_CAPACITY = 2
+        internal const val DEFAULT_MAX_AGE_MS = 10 * 60 * 1000L // 10 minutes
+
+        private val sharedLock = Any()
+
+        @Volatile
+        private var sharedPool: PKCEPool? = null
+
+        /**
+         * The pool used by [AuthorizationClient]. It is replaced by an empty pool when
+         * [AuthorizationConfig.pkceMaxAgeMillis] changes.
+         */
+        @JvmStatic
+        val shared: PKCEPool
+            get() {
+                val maxAgeMillis = AuthorizationClient.getConfig().pkceMaxAgeMillis
+                sharedPool?.let { if (it.maxAgeMillis == maxAgeMillis) return it }
+                synchronized(sharedLock) {
+                    sharedPool?.let { if (it.maxAgeMillis == maxAgeMillis) return it }
+                    return PKCEPool(DEFAULT_CAPACITY, maxAgeMillis, Executor { IoExecutor.executeInBackground(it) }) {
+                        SystemClock.elapsedRealtime()
+                    }.also { sharedPool = it }
+                }
+            }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.net.Uri
+
+/**
+ * The parameters of a redirect URI that [AuthorizationResponse.fromUri] looks at, read in one pass
+ * over the encoded query or fragment.
+ *
+ * Keys are matched exactly, and the first occurrence of a key wins, as with [Uri.getQueryParameter].
+ * Only the bounds of each value are recorded while scanning. A value is decoded when it is asked for,
+ * and values without escapes are returned as a plain substring.
+ */
+internal class RedirectUriParameters private constructor(
+    private val source: String,
+    private val convertPlus: Boolean
+) {
+    /** Start and end of the value of each key in [KEYS], or -1 if the key is missing */
+    private val bounds = IntArray(KEYS.size * 2)
+
+    init {
+        bounds.fill(-1)
+        val length = source.length
+        var start = 0
+        var nextEquals = source.indexOf('=')
+        while (start <= length) {
+            var end = source.indexOf('&', start)
+            if (end == -1) {
+                end = length
+            }
+            if (nextEquals != -1 && nextEquals < start) {
+                nextEquals = source.indexOf('=', start)
+            }
+            val separator = if (nextEquals == -1 || nextEquals > end) end else nextEquals
+            val key = keyIndex(start, separator)
+            if (key != -1 && bounds[key * 2] == -1) {
+                bounds[key * 2] = minOf(separator + 1, end)
+                bounds[key * 2 + 1] = end
+            }
+            start = end + 1
+        }
+    }
+
+    private fun keyIndex(start: Int, end: Int): Int {
+        val keyLength = end - start
+        for (i in KEYS.indices) {
+            val key = KEYS[i]
+            if (key.length == keyLength && source.regionMatches(start, key, 0, keyLength)) {
+                return i
+            }
+        }
+        return -1
+    }
+
+    /**
+     * @param key One of [ERROR], [STATE], [CODE], [ACCESS_TOKEN] or [EXPIRES_IN]
+     */
+    fun contains(key: Int): Boolean = bounds[key * 2] != -1
+
+    /**
+     * @param key One of [ERROR], [STATE], [CODE], [ACCESS_TOKEN] or [EXPIRES_IN]
+     * @return The decoded value, an empty string for a key without a value, or null if the key is missing
+     */
+    operator fun get(key: Int): String? {
+        val start = bounds[key * 2]
+        if (start == -1) {
+            return null
+        }
+        val end = bounds[key * 2 + 1]
+        for (i in start until end) {
+            val c = source[i]
+            if (c == '%' || (convertPlus && c == '+')) {
+                val value = source.substring(start, end)
+                return Uri.decode(if (convertPlus) value.replace('+', ' ') else value)
+            }
+        }
+        return source.substring(start, end)
+    }
+
+    companion object {
+        const val ERROR = 0
+        const val STATE = 1
+        const val CODE = 2
+        const val ACCESS_TOKEN = 3
+        const val EXPIRES_IN = 4
+
+        private val KEYS = arrayOf(
+            AccountsQueryParameters.ERROR,
+            AccountsQueryParameters.STATE,
+            AccountsQueryParameters.CODE,
+            AccountsQueryParameters.ACCESS_TOKEN,
+            AccountsQueryParameters.EXPIRES_IN
+        )
+
+        /**
+         * Reads an encoded query. As in [Uri.getQueryParameter], `+` in a value is decoded as a space.
+         */
+        @JvmStatic
+        fun fromQuery(encodedQuery: String): RedirectUriParameters = RedirectUriParameters(encodedQuery, true)
+
+        /**
+         * Reads an encoded fragment. As in [Uri.decode], `+` in a value is kept.
+         */
+        @JvmStatic
+        fun fromFragment(encodedFragment: String): RedirectUriParameters = RedirectUriParameters(encodedFragment, false)
+    }
+}
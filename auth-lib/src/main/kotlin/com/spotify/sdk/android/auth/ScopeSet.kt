@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.Parcel
+import android.os.Parcelable
+import java.util.Collections
+import java.util.TreeSet
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * An immutable set of OAuth scopes.
+ *
+ * The scopes of the Spotify Web API are kept as bits of a single [Long], indexed by [KNOWN_SCOPES],
+ * so comparing two sets or checking that one contains another is a couple of bitwise operations.
+ * Any other scope goes in a sorted overflow list. Sets without such scopes are interned, and the
+ * space-separated form sent to the accounts service is built once per set.
+ *
+ * The scopes are always listed in a canonical order: the known scopes in the order of [KNOWN_SCOPES],
+ * then the others alphabetically. Duplicates and empty names are dropped.
+ *
+ * To create one use [ScopeSet.of] or [ScopeSet.parse]
+ */
+class ScopeSet private constructor(
+    /** One bit per scope in [KNOWN_SCOPES] */
+    @JvmField internal val bits: Long,
+    /** The scopes that aren't in [KNOWN_SCOPES], sorted and without duplicates */
+    @JvmField internal val overflow: List<String>
+) : Parcelable {
+
+    @Volatile
+    private var names: List<String>? = null
+
+    @Volatile
+    private var encoded: String? = null
+
+    val isEmpty: Boolean
+        get() = bits == 0L && overflow.isEmpty()
+
+    val size: Int
+        get() = java.lang.Long.bitCount(bits) + overflow.size
+
+    /**
+     * @return True if `scope` is in this set
+     */
+    operator fun contains(scope: String): Boolean {
+        val index = INDICES[scope]
+        if (index != null) {
+            return bits and (1L shl index) != 0L
+        }
+        return Collections.binarySearch(overflow, scope) >= 0
+    }
+
+    /**
+     * @return True if every scope in `other` is also in this set
+     */
+    fun containsAll(other: ScopeSet): Boolean {
+        if (other.bits and bits.inv() != 0L) {
+            return false
+        }
+        return other.overflow.isEmpty() || containsAllSorted(overflow, other.overflow)
+    }
+
+    /**
+     * @return The scopes, in canonical order
+     */
+    fun toList(): List<String> {
+        names?.let { return it }
+        val scopes = ArrayList<String>(size)
+        var remaining = bits
+        while (remaining != 0L) {
+            val index = java.lang.Long.numberOfTrailingZeros(remaining)
+            scopes.add(KNOWN_SCOPES[index])
+            remaining = remaining and (remaining - 1)
+        }
+        scopes.addAll(overflow)
+        return Collections.unmodifiableList(scopes).also { names = it }
+    }
+
+    /**
+     * @return A new array with the scopes, in canonical order
+     */
+    fun toArray(): Array<String> = toList().toTypedArray()
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is ScopeSet) return false
+        return bits == other.bits && overflow == other.overflow
+    }
+
+    override fun hashCode(): Int {
+        return 31 * (bits xor (bits ushr 32)).toInt() + overflow.hashCode()
+    }
+
+    /**
+     * @return The scopes separated by spaces, in canonical order,
+     * as sent in the `scope` parameter
+     */
+    override fun toString(): String {
+        encoded?.let { return it }
+        return toList().joinToString(SEPARATOR).also { encoded = it }
+    }
+
+    override fun describeContents(): Int = 0
+
+    override fun writeToParcel(dest: Parcel, flags: Int) {
+        dest.writeLong(bits)
+        dest.writeStringList(overflow)
+    }
+
+    companion object {
+        /**
+         * The scopes of the Spotify Web API. Bits are assigned by position, so new scopes must be
+         * added at the end, and the list can't grow past 64 entries.
+         */
+        @JvmField
+        internal val KNOWN_SCOPES = arrayOf(
+            "app-remote-control",
+            "playlist-modify-private",
+            "playlist-modify-public",
+            "playlist-read-collaborative",
+            "playlist-read-private",
+            "streaming",
+            "ugc-image-upload",
+            "user-follow-modify",
+            "user-follow-read",
+            "user-library-modify",
+            "user-library-read",
+            "user-modify-playback-state",
+            "user-read-currently-playing",
+            "user-read-email",
+            "user-read-playback-position",
+            "user-read-playback-state",
+            "user-read-private",
+            "user-read-recently-played",
+            "user-top-read",
+            "user-soa-link",
+            "user-soa-unlink",
+            "soa-manage-entitlements",
+            "soa-manage-partner",
+            "soa-create-partner"
+        )
+
+        /**
+         * The same as [AuthorizationRequest.SCOPES_SEPARATOR]. It is repeated here so this class
+         * compiles without AuthorizationRequest, as it does in the JVM benchmarks.
+         */
+        private const val SEPARATOR = " "
+
+        private val INDICES: Map<String, Int> = HashMap<String, Int>(KNOWN_SCOPES.size * 2).apply {
+            KNOWN_SCOPES.forEachIndexed { index, scope -> put(scope, index) }
+        }
+
+        private val KNOWN_BITS: Long = -1L ushr (64 - KNOWN_SCOPES.size)
+
+        /**
+         * Interned sets without overflow, by bits. Apps use a handful of scope combinations, so the
+         * bound only matters for apps that build sets from arbitrary input.
+         */
+        private const val MAX_INTERNED = 256
+        private val INTERNED = ConcurrentHashMap<Long, ScopeSet>()
+
+        @JvmField
+        val EMPTY = ScopeSet(0L, emptyList())
+
+        /**
+         * Builds a set from scope names. Surrounding whitespace, empty names and duplicates are ignored.
+         */
+        @JvmStatic
+        fun of(scopes: Iterable<String>?): ScopeSet {
+            if (scopes == null) {
+                return EMPTY
+            }
+            var bits = 0L
+            var overflow: TreeSet<String>? = null
+            for (rawScope in scopes) {
+                val scope = rawScope.trim()
+                if (scope.isEmpty()) {
+                    continue
+                }
+                val index = INDICES[scope]
+                if (index != null) {
+                    bits = bits or (1L shl index)
+                } else {
+                    if (overflow == null) {
+                        overflow = TreeSet()
+                    }
+                    overflow.add(scope)
+                }
+            }
+            return create(bits, overflow?.toList() ?: emptyList())
+        }
+
+        @JvmStatic
+        fun of(scopes: Array<String>?): ScopeSet = of(scopes?.asList())
+
+        /**
+         * Builds a set from a space-separated scope string, as sent in the `scope` parameter.
+         */
+        @JvmStatic
+        fun parse(scopes: String?): ScopeSet {
+            if (scopes.isNullOrEmpty()) {
+                return EMPTY
+            }
+            return of(scopes.split(SEPARATOR))
+        }
+
+        private fun create(bits: Long, overflow: List<String>): ScopeSet {
+            if (overflow.isNotEmpty()) {
+                return ScopeSet(bits, overflow)
+            }
+            if (bits == 0L) {
+                return EMPTY
+            }
+            INTERNED[bits]?.let { return it }
+            val scopeSet = ScopeSet(bits, emptyList())
+            if (INTERNED.size >= MAX_INTERNED) {
+                return scopeSet
+            }
+            return INTERNED.putIfAbsent(bits, scopeSet) ?: scopeSet
+        }
+
+        private fun containsAllSorted(superset: List<String>, subset: List<String>): Boolean {
+            var i = 0
+            for (scope in subset) {
+                while (i < superset.size && superset[i] < scope) {
+                    i++
+                }
+                if (i == superset.size || superset[i] != scope) {
+                    return false
+                }
+                i++
+            }
+            return true
+        }
+
+        @JvmField
+        val CREATOR = object : Parcelable.Creator<ScopeSet> {
+            override fun createFromParcel(source: Parcel): ScopeSet {
+                val bits = source.readLong() and KNOWN_BITS
+                val overflow = source.createStringArrayList()
+                if (overflow.isNullOrEmpty()) {
+                    return create(bits, emptyList())
+                }
+                // Normalize the overflow rather than trusting the sender to have sorted it
+                val extra = of(overflow)
+                return create(bits or extra.bits, extra.overflow)
+            }
+
+            override fun newArray(size: Int): Array<ScopeSet?> {
+                return arrayOfNulls(size)
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.security.SecureRandom
+
+/**
+ * The [SecureRandom] shared by the whole library.
+ *
+ * The first use of a [SecureRandom] can block while it's seeded, so it is created once and
+ * can be seeded ahead of time with [warmUp].
+ */
+internal object SharedSecureRandom {
+
+    val instance: SecureRandom by lazy { SecureRandom() }
+
+    /**
+     * Creates and seeds the shared instance. This may block and should be called off the main thread.
+     */
+    fun warmUp() {
+        instance.nextBytes(ByteArray(1))
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.CancellationSignal
+import android.os.OperationCanceledException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Makes concurrent calls for the same key share one execution.
+ *
+ * The first caller for a key runs the work on its own thread. Callers that arrive while it runs
+ * wait for it and get the same result, or the same exception. The work is given its own
+ * [CancellationSignal], which is cancelled only once every waiting caller has cancelled, so one
+ * caller giving up doesn't fail the others. A cancelled caller that isn't running the work returns
+ * right away. The caller that runs it returns once the work finishes or is cancelled.
+ */
+internal class SingleFlight<K : Any, V> @JvmOverloads constructor(
+    /** Runs on a caller's thread once it has joined a run in progress, right before it waits. For tests. */
+    private val onJoin: Runnable? = null
+) {
+
+    private class Flight<V> {
+        val cancellationSignal = CancellationSignal()
+        var callers = 1
+        var done = false
+        var result: V? = null
+        var error: Throwable? = null
+    }
+
+    private val lock = Object()
+    private val flights = HashMap<K, Flight<V>>()
+
+    /**
+     * Runs `work`, or waits for the run that is already in progress for `key`.
+     *
+     * @param key Identifies calls that can share a result
+     * @param cancellationSignal Cancels this call, or null
+     * @param work The work, given a signal that is cancelled when no caller is waiting anymore
+     * @return The result of `work`
+     * @throws OperationCanceledException if `cancellationSignal` was cancelled
+     */
+    fun execute(key: K, cancellationSignal: CancellationSignal?, work: (CancellationSignal) -> V): V {
+        cancellationSignal?.throwIfCanceled()
+        var leader = false
+        val flight = synchronized(lock) {
+            flights[key]?.also { it.callers++ } ?: Flight<V>().also {
+                flights[key] = it
+                leader = true
+            }
+        }
+        val detached = AtomicBoolean(false)
+        val leave = {
+            if (detached.compareAndSet(false, true)) {
+                detach(key, flight)
+            }
+        }
+        cancellationSignal?.setOnCancelListener { leave() }
+        try {
+            if (leader) {
+                run(key, flight, work)
+            } else {
+                onJoin?.run()
+                await(flight, cancellationSignal, leave)
+            }
+            cancellationSignal?.throwIfCanceled()
+            flight.error?.let { throw it }
+            @Suppress("UNCHECKED_CAST")
+            return flight.result as V
+        } finally {
+            cancellationSignal?.setOnCancelListener(null)
+        }
+    }
+
+    /**
+     * @return The number of keys with work in progress
+     */
+    fun size(): Int = synchronized(lock) { flights.size }
+
+    private fun run(key: K, flight: Flight<V>, work: (CancellationSignal) -> V) {
+        var result: V? = null
+        var error: Throwable? = null
+        try {
+            result = work(flight.cancellationSignal)
+        } catch (t: Throwable) {
+            error = t
+        }
+        synchronized(lock) {
+            flight.result = result
+            flight.error = error
+            flight.done = true
+            if (flights[key] === flight) {
+                flights.remove(key)
+            }
+            lock.notifyAll()
+        }
+    }
+
+    private fun await(flight: Flight<V>, cancellationSignal: CancellationSignal?, leave: () -> Unit) {
+        try {
+            synchronized(lock) {
+                while (!flight.done && cancellationSignal?.isCanceled != true) {
+                    lock.wait()
+                }
+            }
+        } catch (e: InterruptedException) {
+            leave()
+            throw e
+        }
+    }
+
+    private fun detach(key: K, flight: Flight<V>) {
+        val cancelWork = synchronized(lock) {
+            flight.callers--
+            lock.notifyAll()
+            if (flight.callers == 0 && !flight.done) {
+                // Nobody wants the result anymore, so later callers start over
+                if (flights[key] === flight) {
+                    flights.remove(key)
+                }
+                true
+            } else {
+                false
+            }
+        }
+        if (cancelWork) {
+            flight.cancellationSignal.cancel()
+        }
+    }
+}
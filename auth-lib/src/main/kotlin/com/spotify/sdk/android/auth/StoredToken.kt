@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.SystemClock
+
+/**
+ * An access token kept by [TokenStore].
+ */
+class StoredToken internal constructor(
+    /** The client ID the token was issued to */
+    val clientId: String,
+    internal val scopeSet: ScopeSet,
+    /** The access token */
+    val accessToken: String,
+    /** The token type (usually "Bearer"), or null if the server didn't send one */
+    val tokenType: String?,
+    /** The refresh token, or null if the token can't be refreshed */
+    val refreshToken: String?,
+    /** The number of seconds the token was valid for when it was issued */
+    val expiresIn: Int,
+    /**
+     * The time the token expires, in the [SystemClock.elapsedRealtime] time base.
+     * Unlike wall-clock time it isn't affected by the user or the network changing the clock.
+     */
+    val expiresAt: Long
+) {
+
+    /** The scopes granted to the token, in the canonical order of [ScopeSet] */
+    val scopes: List<String>
+        get() = scopeSet.toList()
+
+    /**
+     * @param now The current time in the [SystemClock.elapsedRealtime] time base
+     * @return The number of milliseconds until the token expires, or a negative value if it has expired
+     */
+    fun getRemainingMillis(now: Long): Long = expiresAt - now
+
+    override fun toString(): String {
+        // Keep the tokens out of logs
+        return "StoredToken(clientId=$clientId, scopes=$scopeSet, expiresIn=$expiresIn, expiresAt=$expiresAt)"
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.annotation.TargetApi
+import android.os.Build
+import android.security.keystore.KeyGenParameterSpec
+import android.security.keystore.KeyProperties
+import java.nio.ByteBuffer
+import java.security.GeneralSecurityException
+import java.security.KeyStore
+import javax.crypto.Cipher
+import javax.crypto.KeyGenerator
+import javax.crypto.SecretKey
+import javax.crypto.spec.GCMParameterSpec
+
+/**
+ * Encrypts the data [TokenStore] writes to disk.
+ */
+internal interface TokenCipher {
+
+    @Throws(GeneralSecurityException::class)
+    fun encrypt(plaintext: ByteArray): ByteArray
+
+    @Throws(GeneralSecurityException::class)
+    fun decrypt(ciphertext: ByteArray): ByteArray
+}
+
+/**
+ * A [TokenCipher] that uses AES-GCM with a key kept in the Android Keystore, so the key
+ * material never enters the app's process. The output is the IV length, the IV and the ciphertext.
+ */
+@TargetApi(Build.VERSION_CODES.M)
+internal class KeystoreTokenCipher(private val keyAlias: String) : TokenCipher {
+
+    @Throws(GeneralSecurityException::class)
+    override fun encrypt(plaintext: ByteArray): ByteArray {
+        val cipher = Cipher.getInstance(TRANSFORMATION)
+        // The keystore generates a random IV for every encryption
+        cipher.init(Cipher.ENCRYPT_MODE, getOrCreateKey())
+        val iv = cipher.iv
+        val ciphertext = cipher.doFinal(plaintext)
+        return ByteBuffer.allocate(1 + iv.size + ciphertext.size)
+            .put(iv.size.toByte())
+            .put(iv)
+            .put(ciphertext)
+            .array()
+    }
+
+    @Throws(GeneralSecurityException::class)
+    override fun decrypt(ciphertext: ByteArray): ByteArray {
+        if (ciphertext.isEmpty()) {
+            throw GeneralSecurityException("Empty ciphertext")
+        }
+        val ivLength = ciphertext[0].toInt()
+        if (ivLength <= 0 || ivLength >= ciphertext.size - 1) {
+            throw GeneralSecurityException("Invalid IV length")
+        }
+        val key = getKey() ?: throw GeneralSecurityException("No key for $keyAlias")
+        val cipher = Cipher.getInstance(TRANSFORMATION)
+        cipher.init(Cipher.DECRYPT_MODE, key, GCMParameterSpec(TAG_LENGTH_BITS, ciphertext, 1, ivLength))
+        return cipher.doFinal(ciphertext, 1 + ivLength, ciphertext.size - 1 - ivLength)
+    }
+
+    private fun getKey(): SecretKey? {
+        val keyStore = KeyStore.getInstance(ANDROID_KEYSTORE)
+        keyStore.load(null)
+        return keyStore.getKey(keyAlias, null) as SecretKey?
+    }
+
+    @Synchronized
+    private fun getOrCreateKey(): SecretKey {
+        getKey()?.let { return it }
+        val generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, ANDROID_KEYSTORE)
+        generator.init(
+            KeyGenParameterSpec.Builder(
+                keyAlias,
+                KeyProperties.PURPOSE_ENCRYPT or KeyProperties.PURPOSE_DECRYPT
+            )
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(KEY_SIZE_BITS)
+                .build()
+        )
+        return generator.generateKey()
+    }
+
+    companion object {
+        private const val ANDROID_KEYSTORE = "AndroidKeyStore"
+        private const val TRANSFORMATION = "AES/GCM/NoPadding"
+        private const val KEY_SIZE_BITS = 256
+        private const val TAG_LENGTH_BITS = 128
+    }
+}
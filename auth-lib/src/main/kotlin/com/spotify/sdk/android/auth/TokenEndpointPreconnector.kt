@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Warms up the connection to the token endpoint when an auth flow that ends with a code
+ * exchange starts. Only active when enabled with [AuthorizationConfig.preconnectTokenEndpoint].
+ */
+internal object TokenEndpointPreconnector {
+
+    private val inProgress = AtomicBoolean(false)
+
+    /**
+     * Called by the auth handlers once they have started the auth UI.
+     */
+    fun onAuthStarted(request: AuthorizationRequest) {
+        if (!AuthorizationClient.getConfig().preconnectTokenEndpoint || request.pkceInformation == null) {
+            return
+        }
+        if (!inProgress.compareAndSet(false, true)) {
+            return
+        }
+
+        try {
+            IoExecutor.executeInBackground {
+                try {
+                    TokenExchangeRequest.preconnect()
+                } finally {
+                    inProgress.set(false)
+                }
+            }
+        } catch (e: RejectedExecutionException) {
+            inProgress.set(false)
+        }
+    }
+}
@@ -21,23 +21,17 @@
 
 package com.spotify.sdk.android.auth
 
-import java.io.BufferedReader
-import java.io.IOException
-import java.io.InputStreamReader
-import java.net.HttpURLConnection
-import java.net.URL
-import java.net.URLEncoder
-
 /**
  * A utility class for exchanging an authorization code for an access token using PKCE verifier.
  * This implements the OAuth 2.0 Authorization Code Grant with PKCE as specified in RFC 7636.
  */
-class TokenExchangeRequest(
+class TokenExchangeRequest @JvmOverloads constructor(
     private val clientId: String,
     private val code: String,
     private val redirectUri: String,
-    private val codeVerifier: String
-) {
+    private val codeVerifier: String,
+    transport: TokenTransport = DEFAULT_TRANSPORT
+) : TokenRequest(transport) {
 
     init {
         require(clientId.isNotEmpty()) { "Client ID cannot be empty" }
@@ -46,75 +40,14 @@ class TokenExchangeRequest(
         require(codeVerifier.isNotEmpty()) { "Code verifier cannot be empty" }
     }
 
-    /**
-     * Executes the token exchange request synchronously.
-     * This method performs a blocking HTTP request and should not be called on the main thread.
-     *
-     * @return TokenExchangeResponse containing the access token or error information
-     */
-    fun execute(): TokenExchangeResponse {
-        var connection: HttpURLConnection? = null
-        try {
-            val url = URL(TOKEN_ENDPOINT)
-            connection = url.openConnection() as HttpURLConnection
-
-            connection.requestMethod = "POST"
-            connection.setRequestProperty("Content-Type", CONTENT_TYPE_FORM)
-            connection.doOutput = true
-            connection.connectTimeout = TIMEOUT_MS
-            connection.readTimeout = TIMEOUT_MS
-
-            val requestBody = buildRequestBody()
-
-            connection.outputStream.use { outputStream ->
-                try {
-                    outputStream.write(requestBody.toByteArray(Charsets.UTF_8))
-                } catch (e: Exception) {
-                    // UTF-8 is guaranteed to be supported on all platforms
-                    throw RuntimeException("UTF-8 encoding not supported", e)
-                }
-                outputStream.flush()
-            }
-
-            val responseCode = connection.responseCode
-            val responseBody = readResponse(connection, responseCode >= 400)
-
-            return TokenExchangeResponse.fromHttpResponse(responseCode, responseBody)
-
-        } catch (e: IOException) {
-            return TokenExchangeResponse.fromError("network_error", "Network error: ${e.message}")
-        } finally {
-            connection?.disconnect()
-        }
-    }
-
-    private fun buildRequestBody(): String {
-        return try {
-            "grant_type=" + URLEncoder.encode(GRANT_TYPE_AUTHORIZATION_CODE, "UTF-8") +
-                    "&client_id=" + URLEncoder.encode(clientId, "UTF-8") +
-                    "&code=" + URLEncoder.encode(code, "UTF-8") +
-                    "&redirect_uri=" + URLEncoder.encode(redirectUri, "UTF-8") +
-                    "&code_verifier=" + URLEncoder.encode(codeVerifier, "UTF-8")
-        } catch (e: Exception) {
-            // This should never happen with UTF-8
-            throw RuntimeException("Failed to encode request parameters", e)
-        }
-    }
-
-    private fun readResponse(connection: HttpURLConnection, isError: Boolean): String {
-        BufferedReader(
-            InputStreamReader(
-                if (isError) connection.errorStream else connection.inputStream,
-                "UTF-8"
-            )
-        ).use { reader ->
-            val response = StringBuilder()
-            var line: String?
-            while (reader.readLine().also { line = it } != null) {
-                response.append(line)
-            }
-            return response.toString()
-        }
+    override fun buildRequestBody(): String {
+        return FormBody()
+            .add("grant_type", GRANT_TYPE_AUTHORIZATION_CODE)
+            .add("client_id", clientId)
+            .add("code", code)
+            .add("redirect_uri", redirectUri)
+            .add("code_verifier", codeVerifier)
+            .toString()
     }
 
     /**
@@ -125,6 +58,7 @@ class TokenExchangeRequest(
         private var code: String? = null
         private var redirectUri: String? = null
         private var codeVerifier: String? = null
+        private var transport: TokenTransport = DEFAULT_TRANSPORT
 
         /**
          * Sets the client ID.
@@ -166,6 +100,16 @@ class TokenExchangeRequest(
             this.codeVerifier = codeVerifier
         }
 
+        /**
+         * Sets the transport used to send the request. Defaults to a shared [HttpUrlConnectionTransport].
+         *
+         * @param transport The transport
+         * @return This builder instance for method chaining
+         */
+        fun setTransport(transport: TokenTransport) = apply {
+            this.transport = transport
+        }
+
         /**
          * Builds the TokenExchangeRequest.
          *
@@ -187,15 +131,26 @@ class TokenExchangeRequest(
                 clientId = clientIdValue,
                 code = codeValue,
                 redirectUri = redirectUriValue,
-                codeVerifier = codeVerifierValue
+                codeVerifier = codeVerifierValue,
+                transport = transport
             )
         }
     }
 
     companion object {
-        private const val TOKEN_ENDPOINT = "https://accounts.spotify.com/api/token"
-        private const val CONTENT_TYPE_FORM = "application/x-www-form-urlencoded"
         private const val GRANT_TYPE_AUTHORIZATION_CODE = "authorization_code"
-        private const val TIMEOUT_MS = 10000 // 10 seconds
+
+        /**
+         * Connects to the token endpoint ahead of an exchange, if the transport supports it.
+         * This method blocks and should not be called on the main thread.
+         *
+         * @param transport The transport that will be used for the exchange
+         * @return True if a connection was set up
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun preconnect(transport: TokenTransport = DEFAULT_TRANSPORT): Boolean {
+            return TokenRequest.preconnect(transport)
+        }
     }
 }
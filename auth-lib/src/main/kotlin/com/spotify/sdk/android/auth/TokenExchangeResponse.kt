@@ -21,9 +21,6 @@
 
 package com.spotify.sdk.android.auth
 
-import org.json.JSONException
-import org.json.JSONObject
-
 /**
  * Response from a token exchange request.
  * Contains either the access token information or error details.
@@ -60,32 +57,8 @@ data class TokenExchangeResponse private constructor(
             if (responseBody.isNullOrBlank()) {
                 return fromError("invalid_response", "Empty response body")
             }
-
-            return try {
-                val json = JSONObject(responseBody)
-
-                if (responseCode == 200) {
-                    // Success response
-                    val accessToken = json.optString("access_token", null)
-                    val tokenType = json.optString("token_type", null)
-                    val expiresIn = json.optInt("expires_in", 0)
-                    val scope = json.optString("scope", null)
-                    val refreshToken = json.optString("refresh_token", null)
-
-                    if (accessToken.isNullOrEmpty()) {
-                        return fromError("invalid_response", "Missing access_token in response")
-                    }
-
-                    fromSuccess(accessToken, tokenType, expiresIn, scope, refreshToken)
-                } else {
-                    // Error response
-                    val error = json.optString("error", "unknown_error")
-                    val errorDescription = json.optString("error_description", null)
-                    fromError(error, errorDescription)
-                }
-            } catch (e: JSONException) {
-                fromError("invalid_response", "Invalid JSON response: ${e.message}")
-            }
+            val bytes = responseBody.toByteArray(Charsets.UTF_8)
+            return TokenResponseParser.parse(responseCode, bytes, bytes.size)
         }
 
         /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+/**
+ * A utility class for getting a new access token with a refresh token, without showing any UI.
+ * This implements the OAuth 2.0 Refresh Token Grant for clients that use PKCE, see
+ * RFC 6749 section 6. The refresh token comes from a previous [TokenExchangeRequest] or
+ * [AuthorizationResponse.refreshToken].
+ *
+ * If the token endpoint doesn't send a new refresh token, the returned response carries the
+ * refresh token that was used, so it can always be stored as the current one.
+ */
+class TokenRefreshRequest @JvmOverloads constructor(
+    private val clientId: String,
+    private val refreshToken: String,
+    transport: TokenTransport = DEFAULT_TRANSPORT
+) : TokenRequest(transport) {
+
+    init {
+        require(clientId.isNotEmpty()) { "Client ID cannot be empty" }
+        require(refreshToken.isNotEmpty()) { "Refresh token cannot be empty" }
+    }
+
+    override fun buildRequestBody(): String {
+        return FormBody()
+            .add("grant_type", GRANT_TYPE_REFRESH_TOKEN)
+            .add("refresh_token", refreshToken)
+            .add("client_id", clientId)
+            .toString()
+    }
+
+    override fun onResponse(response: TokenExchangeResponse): TokenExchangeResponse {
+        val accessToken = response.accessToken
+        if (!response.isSuccess || response.refreshToken != null || accessToken == null) {
+            return response
+        }
+        return TokenExchangeResponse.fromSuccess(
+            accessToken,
+            response.tokenType,
+            response.expiresIn,
+            response.scope,
+            refreshToken
+        )
+    }
+
+    /**
+     * Builder class for creating TokenRefreshRequest instances.
+     */
+    class Builder {
+        private var clientId: String? = null
+        private var refreshToken: String? = null
+        private var transport: TokenTransport = DEFAULT_TRANSPORT
+
+        /**
+         * Sets the client ID.
+         *
+         * @param clientId The client ID
+         * @return This builder instance for method chaining
+         */
+        fun setClientId(clientId: String) = apply {
+            this.clientId = clientId
+        }
+
+        /**
+         * Sets the refresh token.
+         *
+         * @param refreshToken The refresh token
+         * @return This builder instance for method chaining
+         */
+        fun setRefreshToken(refreshToken: String) = apply {
+            this.refreshToken = refreshToken
+        }
+
+        /**
+         * Sets the transport used to send the request. Defaults to a shared [HttpUrlConnectionTransport].
+         *
+         * @param transport The transport
+         * @return This builder instance for method chaining
+         */
+        fun setTransport(transport: TokenTransport) = apply {
+            this.transport = transport
+        }
+
+        /**
+         * Builds the TokenRefreshRequest.
+         *
+         * @return A new TokenRefreshRequest instance
+         * @throws IllegalArgumentException if any required field is null or empty
+         */
+        fun build(): TokenRefreshRequest {
+            val clientIdValue = clientId
+            val refreshTokenValue = refreshToken
+
+            require(clientIdValue != null) { "Client ID must be set" }
+            require(refreshTokenValue != null) { "Refresh token must be set" }
+
+            return TokenRefreshRequest(
+                clientId = clientIdValue,
+                refreshToken = refreshTokenValue,
+                transport = transport
+            )
+        }
+    }
+
+    companion object {
+        private const val GRANT_TYPE_REFRESH_TOKEN = "refresh_token"
+    }
+}
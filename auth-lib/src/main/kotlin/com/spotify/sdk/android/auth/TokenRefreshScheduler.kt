@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.Handler
+import android.util.Log
+import java.util.IdentityHashMap
+import java.util.Random
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Refreshes the tokens in a [TokenStore] in the background before they expire, so calls to the
+ * Web API don't have to wait for a refresh after a 401.
+ *
+ * A token is refreshed once [AuthorizationConfig.refreshFraction] of its lifetime has passed,
+ * moved by a random jitter of up to `jitterFraction` of the lifetime either way so devices that
+ * logged in together don't refresh together. Only tokens with a refresh token are refreshed.
+ * While the device is offline nothing is sent, and the refreshes that came due run when a network
+ * becomes available. Failed refreshes are retried with exponential backoff, except when the
+ * server rejected the refresh token.
+ *
+ * Timers don't run while the device is asleep, so no timer is set further out than
+ * [MAX_TIMER_DELAY_MS]. That way a refresh that came due during sleep runs soon after waking.
+ */
+internal class TokenRefreshScheduler(
+    private val store: TokenStore,
+    private val clock: TokenStore.Clock,
+    private val timer: Timer,
+    private val networkMonitor: NetworkMonitor,
+    private val executor: Executor,
+    private val refreshFraction: () -> Float,
+    private val jitterFraction: Double,
+    private val random: Random
+) {
+
+    internal interface Timer {
+        fun schedule(task: Runnable, delayMillis: Long)
+
+        fun cancel(task: Runnable)
+    }
+
+    internal interface NetworkMonitor {
+        fun isOnline(): Boolean
+
+        /**
+         * Runs `onAvailable` once, when a network becomes available.
+         */
+        fun waitForNetwork(onAvailable: Runnable)
+    }
+
+    internal class HandlerTimer(private val handler: Handler) : Timer {
+        override fun schedule(task: Runnable, delayMillis: Long) {
+            handler.postDelayed(task, delayMillis)
+        }
+
+        override fun cancel(task: Runnable) {
+            handler.removeCallbacks(task)
+        }
+    }
+
+    private class Schedule(val refreshAt: Long, val failures: Int)
+
+    // Tokens are compared by identity: a refreshed token is a new StoredToken
+    private val schedules = IdentityHashMap<StoredToken, Schedule>()
+    private val inFlight = IdentityHashMap<StoredToken, Boolean>()
+    private val evaluateScheduled = AtomicBoolean(false)
+    private val evaluateTask = Runnable { requestEvaluate() }
+
+    /**
+     * Starts following the changes to the store.
+     */
+    fun start() {
+        store.changeListener = evaluateTask
+        requestEvaluate()
+    }
+
+    /**
+     * Looks for tokens to refresh on the executor, since it may read the store from disk.
+     */
+    fun requestEvaluate() {
+        if (!evaluateScheduled.compareAndSet(false, true)) {
+            return
+        }
+        try {
+            executor.execute {
+                evaluateScheduled.set(false)
+                evaluate()
+            }
+        } catch (e: RejectedExecutionException) {
+            evaluateScheduled.set(false)
+            Log.w(TAG, "Failed to schedule a token refresh check", e)
+        }
+    }
+
+    private fun evaluate() {
+        val due = ArrayList<StoredToken>()
+        synchronized(this) {
+            timer.cancel(evaluateTask)
+            val fraction = refreshFraction()
+            if (fraction <= 0f) {
+                schedules.clear()
+                return
+            }
+
+            val now = clock.elapsedRealtime()
+            val tokens = store.getRefreshableTokens()
+            val current = IdentityHashMap<StoredToken, Boolean>()
+            tokens.forEach { current[it] = true }
+            schedules.keys.retainAll(current.keys)
+
+            var next = Long.MAX_VALUE
+            for (token in tokens) {
+                if (inFlight.containsKey(token)) {
+                    continue
+                }
+                val schedule = schedules.getOrPut(token) { Schedule(getRefreshTime(token, fraction), 0) }
+                if (schedule.refreshAt <= now) {
+                    due.add(token)
+                } else {
+                    next = Math.min(next, schedule.refreshAt)
+                }
+            }
+
+            if (due.isNotEmpty() && !networkMonitor.isOnline()) {
+                // Check again as soon as there is a network. The timer is a fallback in case
+                // the network callback can't be registered.
+                networkMonitor.waitForNetwork(evaluateTask)
+                due.clear()
+                next = now + MAX_TIMER_DELAY_MS
+            }
+            due.forEach { inFlight[it] = true }
+            if (next != Long.MAX_VALUE) {
+                timer.schedule(evaluateTask, Math.min(next - now, MAX_TIMER_DELAY_MS))
+            }
+        }
+        due.forEach { refresh(it) }
+    }
+
+    private fun getRefreshTime(token: StoredToken, fraction: Float): Long {
+        val lifetime = token.expiresIn * 1000L
+        val issuedAt = token.expiresAt - lifetime
+        val jitter = ((random.nextDouble() * 2 - 1) * jitterFraction * lifetime).toLong()
+        return Math.min(issuedAt + (lifetime * fraction).toLong() + jitter, token.expiresAt - MIN_REFRESH_MARGIN_MS)
+    }
+
+    private fun refresh(token: StoredToken) {
+        try {
+            executor.execute {
+                val response = try {
+                    // Goes through the store so it is shared with refreshes the app starts
+                    store.refresh(token.clientId, token.scopeSet)
+                } catch (e: RuntimeException) {
+                    TokenExchangeResponse.fromError("unknown_error", "Token refresh failed: ${e.message}")
+                }
+                onRefreshed(token, response)
+            }
+        } catch (e: RejectedExecutionException) {
+            Log.w(TAG, "Failed to start a token refresh", e)
+            synchronized(this) {
+                inFlight.remove(token)
+            }
+        }
+    }
+
+    private fun onRefreshed(token: StoredToken, response: TokenExchangeResponse) {
+        synchronized(this) {
+            inFlight.remove(token)
+            if (response.isSuccess) {
+                schedules.remove(token)
+            } else if (response.error in PERMANENT_ERRORS) {
+                Log.w(TAG, "Token refresh rejected: ${response.error}")
+                schedules[token] = Schedule(Long.MAX_VALUE, 0)
+            } else {
+                val failures = (schedules[token]?.failures ?: 0) + 1
+                val delay = Math.min(RETRY_DELAY_MS shl Math.min(failures - 1, MAX_RETRY_SHIFT), MAX_RETRY_DELAY_MS)
+                Log.d(TAG, "Token refresh failed: ${response.error}, retrying in $delay ms")
+                schedules[token] = Schedule(clock.elapsedRealtime() + delay, failures)
+            }
+        }
+        requestEvaluate()
+    }
+
+    companion object {
+        private val TAG = TokenRefreshScheduler::class.java.simpleName
+
+        const val DEFAULT_JITTER_FRACTION = 0.05
+        const val MAX_TIMER_DELAY_MS = 5 * 60 * 1000L
+
+        /** Refreshes are started at least this long before expiry, so [TokenStore.getValidToken] keeps finding a token */
+        const val MIN_REFRESH_MARGIN_MS = 2 * TokenStore.DEFAULT_MIN_REMAINING_MS
+
+        private const val RETRY_DELAY_MS = 15 * 1000L
+        private const val MAX_RETRY_DELAY_MS = 10 * 60 * 1000L
+        private const val MAX_RETRY_SHIFT = 10
+
+        /** Errors after which retrying the same refresh token can't succeed */
+        private val PERMANENT_ERRORS = setOf(
+            "invalid_grant",
+            "invalid_client",
+            "unauthorized_client",
+            TokenStore.ERROR_NO_REFRESH_TOKEN
+        )
+    }
+}
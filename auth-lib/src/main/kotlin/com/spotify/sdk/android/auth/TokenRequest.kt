@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.CancellationSignal
+import android.os.OperationCanceledException
+import android.util.Log
+import kotlinx.coroutines.suspendCancellableCoroutine
+import java.io.IOException
+import java.util.concurrent.Executor
+import kotlin.coroutines.resume
+
+/**
+ * A request to the Spotify accounts token endpoint.
+ * All token requests share the same transport, response parsing and cancellation behaviour.
+ *
+ * @see TokenExchangeRequest
+ * @see TokenRefreshRequest
+ */
+abstract class TokenRequest internal constructor(
+    private val transport: TokenTransport
+) {
+
+    /**
+     * Callback for [executeAsync].
+     */
+    fun interface Callback {
+        /**
+         * Called on the executor thread when the request completes.
+         * It is not called if the request was cancelled.
+         *
+         * @param response The access token or error information
+         */
+        fun onComplete(response: TokenExchangeResponse)
+    }
+
+    /**
+     * Builds the `application/x-www-form-urlencoded` request body.
+     */
+    protected abstract fun buildRequestBody(): String
+
+    /**
+     * Lets a request adjust a parsed response before it is returned.
+     */
+    protected open fun onResponse(response: TokenExchangeResponse): TokenExchangeResponse = response
+
+    /**
+     * Executes the request synchronously.
+     * This method performs a blocking HTTP request and should not be called on the main thread.
+     * If an identical request is already running on the same transport, this call waits for it
+     * and returns its response instead of sending another one.
+     *
+     * @param cancellationSignal Signal that aborts the request and closes its connection, or null
+     * @return TokenExchangeResponse containing the access token or error information
+     * @throws OperationCanceledException if `cancellationSignal` was cancelled
+     */
+    @JvmOverloads
+    fun execute(cancellationSignal: CancellationSignal? = null): TokenExchangeResponse {
+        cancellationSignal?.throwIfCanceled()
+        val requestBody = buildRequestBody()
+        // Sending the same grant twice at once would at best waste a request, and with a
+        // single-use code or a rotating refresh token the second one fails with invalid_grant
+        val response = IN_FLIGHT.execute(Pair(transport, requestBody), cancellationSignal) { signal ->
+            post(requestBody, signal)
+        }
+        return onResponse(response)
+    }
+
+    private fun post(requestBody: String, cancellationSignal: CancellationSignal): TokenExchangeResponse {
+        return try {
+            transport.post(TOKEN_ENDPOINT, requestBody.toByteArray(Charsets.UTF_8), cancellationSignal) { responseCode, body ->
+                TokenResponseParser.parse(responseCode, body)
+            }
+        } catch (e: TokenResponseParser.ResponseTooLargeException) {
+            TokenExchangeResponse.fromError("invalid_response", e.message)
+        } catch (e: IOException) {
+            // A cancelled request fails with an IOException from the closed socket
+            cancellationSignal.throwIfCanceled()
+            TokenExchangeResponse.fromError("network_error", "Network error: ${e.message}")
+        }
+    }
+
+    /**
+     * Executes the request on `executor`.
+     *
+     * @param executor Runs the blocking request
+     * @param callback Receives the response on the executor thread
+     * @return A signal that cancels the request. Cancelling it aborts the request, closes its
+     * connection and makes sure `callback` is not called.
+     */
+    fun executeAsync(executor: Executor, callback: Callback): CancellationSignal {
+        val cancellationSignal = CancellationSignal()
+        executor.execute {
+            val response = try {
+                execute(cancellationSignal)
+            } catch (e: OperationCanceledException) {
+                return@execute
+            } catch (e: RuntimeException) {
+                TokenExchangeResponse.fromError("unknown_error", "Token request failed: ${e.message}")
+            }
+            if (!cancellationSignal.isCanceled) {
+                callback.onComplete(response)
+            }
+        }
+        return cancellationSignal
+    }
+
+    /**
+     * Executes the request without blocking the calling coroutine.
+     * Cancelling the coroutine aborts the request and closes its connection.
+     *
+     * @param executor Runs the blocking request. Defaults to the executor from [AuthorizationConfig].
+     * @return TokenExchangeResponse containing the access token or error information
+     */
+    suspend fun await(executor: Executor = IoExecutor.current()): TokenExchangeResponse {
+        return suspendCancellableCoroutine { continuation ->
+            val cancellationSignal = executeAsync(executor) { response -> continuation.resume(response) }
+            continuation.invokeOnCancellation { cancellationSignal.cancel() }
+        }
+    }
+
+    companion object {
+        private val TAG = TokenRequest::class.java.simpleName
+        internal const val TOKEN_ENDPOINT = "https://accounts.spotify.com/api/token"
+
+        internal val DEFAULT_TRANSPORT: TokenTransport = HttpUrlConnectionTransport()
+
+        private val IN_FLIGHT = SingleFlight<Pair<TokenTransport, String>, TokenExchangeResponse>()
+
+        /**
+         * Connects to the token endpoint ahead of a request, if the transport supports it.
+         * This method blocks and should not be called on the main thread.
+         *
+         * @param transport The transport that will be used for the request
+         * @return True if a connection was set up
+         */
+        internal fun preconnect(transport: TokenTransport): Boolean {
+            val preconnectable = transport as? TokenTransport.Preconnectable ?: return false
+            return try {
+                preconnectable.preconnect(TOKEN_ENDPOINT)
+                true
+            } catch (e: IOException) {
+                Log.d(TAG, "Pre-connecting to the token endpoint failed: ${e.message}")
+                false
+            }
+        }
+    }
+}
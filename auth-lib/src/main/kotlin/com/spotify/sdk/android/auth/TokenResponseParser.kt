@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * A single-pass parser for token endpoint responses.
+ *
+ * It scans the UTF-8 bytes of the body once and only decodes the values of the fields the
+ * library reads. Unknown fields, including nested objects and arrays, are skipped without
+ * being materialized. Bodies larger than [MAX_BODY_BYTES] are rejected.
+ */
+internal object TokenResponseParser {
+
+    const val MAX_BODY_BYTES = 64 * 1024
+    private const val INITIAL_BUFFER_SIZE = 1024
+    private const val INITIAL_SKIP_DEPTH = 8
+
+    private val ACCESS_TOKEN = "access_token".toByteArray(Charsets.US_ASCII)
+    private val TOKEN_TYPE = "token_type".toByteArray(Charsets.US_ASCII)
+    private val EXPIRES_IN = "expires_in".toByteArray(Charsets.US_ASCII)
+    private val SCOPE = "scope".toByteArray(Charsets.US_ASCII)
+    private val REFRESH_TOKEN = "refresh_token".toByteArray(Charsets.US_ASCII)
+    private val ERROR = "error".toByteArray(Charsets.US_ASCII)
+    private val ERROR_DESCRIPTION = "error_description".toByteArray(Charsets.US_ASCII)
+
+    /**
+     * Thrown when a response body is larger than [MAX_BODY_BYTES].
+     */
+    class ResponseTooLargeException : IOException("Response body is larger than $MAX_BODY_BYTES bytes")
+
+    /**
+     * Reads and parses a response body.
+     *
+     * The body is read into a buffer first, on purpose: it is bounded by [MAX_BODY_BYTES] and a
+     * token response fits in the initial 1 KB, so this is a single small allocation. Scanning a
+     * complete buffer lets values be decoded straight from their byte range, and a body that
+     * turns out to be too large is rejected before any of it is parsed.
+     *
+     * @throws ResponseTooLargeException if the body is larger than [MAX_BODY_BYTES]
+     * @throws IOException if reading the body fails
+     */
+    @Throws(IOException::class)
+    fun parse(responseCode: Int, body: InputStream?): TokenExchangeResponse {
+        if (body == null) {
+            return parse(responseCode, ByteArray(0), 0)
+        }
+
+        var buffer = ByteArray(INITIAL_BUFFER_SIZE)
+        var length = 0
+        while (true) {
+            if (length == buffer.size) {
+                if (buffer.size > MAX_BODY_BYTES) {
+                    throw ResponseTooLargeException()
+                }
+                buffer = buffer.copyOf(minOf(buffer.size * 2, MAX_BODY_BYTES + 1))
+            }
+            val read = body.read(buffer, length, buffer.size - length)
+            if (read == -1) {
+                break
+            }
+            length += read
+        }
+        if (length > MAX_BODY_BYTES) {
+            throw ResponseTooLargeException()
+        }
+        return parse(responseCode, buffer, length)
+    }
+
+    /**
+     * Parses the first `length` bytes of `body`.
+     */
+    fun parse(responseCode: Int, body: ByteArray, length: Int): TokenExchangeResponse {
+        val scanner = Scanner(body, length)
+        if (scanner.skipWhitespace() == length) {
+            return TokenExchangeResponse.fromError("invalid_response", "Empty response body")
+        }
+
+        var accessToken: String? = null
+        var tokenType: String? = null
+        var expiresIn = 0
+        var scope: String? = null
+        var refreshToken: String? = null
+        var error: String? = null
+        var errorDescription: String? = null
+
+        try {
+            scanner.expect('{')
+            if (!scanner.consumeIf('}')) {
+                do {
+                    scanner.skipWhitespace()
+                    val key = scanner.readKey()
+                    scanner.expect(':')
+                    // readKey returns the key constants themselves, so this compares references
+                    when (key) {
+                        ACCESS_TOKEN -> accessToken = scanner.readStringValue()
+                        TOKEN_TYPE -> tokenType = scanner.readStringValue()
+                        EXPIRES_IN -> expiresIn = scanner.readIntValue()
+                        SCOPE -> scope = scanner.readStringValue()
+                        REFRESH_TOKEN -> refreshToken = scanner.readStringValue()
+                        ERROR -> error = scanner.readStringValue()
+                        ERROR_DESCRIPTION -> errorDescription = scanner.readStringValue()
+                        else -> scanner.skipValue()
+                    }
+                } while (scanner.consumeIf(','))
+                scanner.expect('}')
+            }
+            if (scanner.skipWhitespace() != length) {
+                throw scanner.syntaxError("Unexpected content after the response object")
+            }
+        } catch (e: MalformedJsonException) {
+            return TokenExchangeResponse.fromError("invalid_response", "Invalid JSON response: ${e.message}")
+        }
+
+        if (responseCode != 200) {
+            return TokenExchangeResponse.fromError(error ?: "unknown_error", errorDescription)
+        }
+        if (accessToken.isNullOrEmpty()) {
+            return TokenExchangeResponse.fromError("invalid_response", "Missing access_token in response")
+        }
+        return TokenExchangeResponse.fromSuccess(accessToken, tokenType, expiresIn, scope, refreshToken)
+    }
+
+    private class MalformedJsonException(message: String) : Exception(message)
+
+    private class Scanner(private val bytes: ByteArray, private val length: Int) {
+        private var pos = 0
+
+        fun skipWhitespace(): Int {
+            while (pos < length) {
+                when (bytes[pos].toInt().toChar()) {
+                    ' ', '\t', '\n', '\r' -> pos++
+                    else -> return pos
+                }
+            }
+            return pos
+        }
+
+        fun expect(c: Char) {
+            if (!consumeIf(c)) {
+                throw syntaxError("Expected '$c'")
+            }
+        }
+
+        fun consumeIf(c: Char): Boolean {
+            skipWhitespace()
+            if (pos < length && bytes[pos].toInt() == c.code) {
+                pos++
+                return true
+            }
+            return false
+        }
+
+        /**
+         * Reads an object key and returns the matching known key constant, or null for any other key.
+         */
+        fun readKey(): ByteArray? {
+            if (pos >= length || bytes[pos] != QUOTE) {
+                throw syntaxError("Expected a key")
+            }
+            val start = pos + 1
+            val end = findStringEnd(start)
+            pos = end + 1
+            if (hasEscape(start, end)) {
+                val key = decodeString(start, end).toByteArray(Charsets.UTF_8)
+                return knownKey(key, 0, key.size)
+            }
+            return knownKey(bytes, start, end)
+        }
+
+        /**
+         * Reads a value as a string. Numbers and booleans are returned as their literal text,
+         * `null`, objects and arrays as null.
+         */
+        fun readStringValue(): String? {
+            skipWhitespace()
+            if (pos >= length) {
+                throw syntaxError("Expected a value")
+            }
+            return when (bytes[pos]) {
+                QUOTE -> {
+                    val start = pos + 1
+                    val end = findStringEnd(start)
+                    pos = end + 1
+                    decodeString(start, end)
+                }
+                OPEN_BRACE, OPEN_BRACKET -> {
+                    skipValue()
+                    null
+                }
+                else -> {
+                    val literal = readLiteral()
+                    if (literal == "null") null else literal
+                }
+            }
+        }
+
+        /**
+         * Reads a value as an int. Numbers and numeric strings are converted, anything else is 0.
+         */
+        fun readIntValue(): Int {
+            skipWhitespace()
+            if (pos < length && (bytes[pos] == OPEN_BRACE || bytes[pos] == OPEN_BRACKET)) {
+                skipValue()
+                return 0
+            }
+            val value = readStringValue() ?: return 0
+            return value.toIntOrNull() ?: value.toDoubleOrNull()?.toInt() ?: 0
+        }
+
+        fun skipValue() {
+            skipWhitespace()
+            if (pos >= length) {
+                throw syntaxError("Expected a value")
+            }
+            when (bytes[pos]) {
+                QUOTE -> pos = findStringEnd(pos + 1) + 1
+                OPEN_BRACE, OPEN_BRACKET -> skipContainer()
+                else -> readLiteral()
+            }
+        }
+
+        private fun skipContainer() {
+            // The closing bracket each open object or array expects, innermost last
+            var closers = ByteArray(INITIAL_SKIP_DEPTH)
+            var depth = 0
+            while (pos < length) {
+                when (val b = bytes[pos]) {
+                    QUOTE -> {
+                        pos = findStringEnd(pos + 1) + 1
+                        continue
+                    }
+                    OPEN_BRACE, OPEN_BRACKET -> {
+                        if (depth == closers.size) {
+                            closers = closers.copyOf(depth * 2)
+                        }
+                        closers[depth++] = if (b == OPEN_BRACE) CLOSE_BRACE else CLOSE_BRACKET
+                    }
+                    CLOSE_BRACE, CLOSE_BRACKET -> {
+                        if (b != closers[--depth]) {
+                            throw syntaxError("Mismatched '${b.toInt().toChar()}'")
+                        }
+                        if (depth == 0) {
+                            pos++
+                            return
+                        }
+                    }
+                }
+                pos++
+            }
+            throw syntaxError("Unterminated object or array")
+        }
+
+        private fun readLiteral(): String {
+            val start = pos
+            while (pos < length) {
+                when (bytes[pos].toInt().toChar()) {
+                    ',', '}', ']', ' ', '\t', '\n', '\r' -> break
+                    else -> pos++
+                }
+            }
+            if (pos == start) {
+                throw syntaxError("Expected a value")
+            }
+            val literal = String(bytes, start, pos - start, Charsets.UTF_8)
+            if (literal != "true" && literal != "false" && literal != "null" && literal.toDoubleOrNull() == null) {
+                throw MalformedJsonException("Unexpected value '$literal' at offset $start")
+            }
+            return literal
+        }
+
+        /**
+         * Returns the index of the closing quote of the string starting at `start`.
+         */
+        private fun findStringEnd(start: Int): Int {
+            var i = start
+            while (i < length) {
+                when (bytes[i]) {
+                    BACKSLASH -> i += 2
+                    QUOTE -> return i
+                    else -> i++
+                }
+            }
+            throw MalformedJsonException("Unterminated string at offset ${start - 1}")
+        }
+
+        private fun hasEscape(start: Int, end: Int): Boolean {
+            for (i in start until end) {
+                if (bytes[i] == BACKSLASH) {
+                    return true
+                }
+            }
+            return false
+        }
+
+        private fun decodeString(start: Int, end: Int): String {
+            val raw = String(bytes, start, end - start, Charsets.UTF_8)
+            if (!hasEscape(start, end)) {
+                return raw
+            }
+            val out = StringBuilder(raw.length)
+            var i = 0
+            while (i < raw.length) {
+                val c = raw[i++]
+                if (c != '\\') {
+                    out.append(c)
+                    continue
+                }
+                if (i >= raw.length) {
+                    throw MalformedJsonException("Unterminated escape sequence")
+                }
+                when (val escaped = raw[i++]) {
+                    '"', '\\', '/' -> out.append(escaped)
+                    'b' -> out.append('\b')
+                    'f' -> out.append('\u000C')
+                    'n' -> out.append('\n')
+                    'r' -> out.append('\r')
+                    't' -> out.append('\t')
+                    'u' -> {
+                        if (i + 4 > raw.length) {
+                            throw MalformedJsonException("Invalid unicode escape")
+                        }
+                        var code = 0
+                        for (j in i until i + 4) {
+                            val digit = hexDigit(raw[j])
+                            if (digit < 0) {
+                                throw MalformedJsonException("Invalid unicode escape")
+                            }
+                            code = code shl 4 or digit
+                        }
+                        out.append(code.toChar())
+                        i += 4
+                    }
+                    else -> throw MalformedJsonException("Invalid escape sequence '\\$escaped'")
+                }
+            }
+            return out.toString()
+        }
+
+        private fun hexDigit(c: Char): Int = when (c) {
+            in '0'..'9' -> c - '0'
+            in 'a'..'f' -> c - 'a' + 10
+            in 'A'..'F' -> c - 'A' + 10
+            else -> -1
+        }
+
+        fun syntaxError(message: String): MalformedJsonException {
+            return MalformedJsonException("$message at offset $pos")
+        }
+    }
+
+    private fun knownKey(source: ByteArray, start: Int, end: Int): ByteArray? {
+        val size = end - start
+        for (key in KNOWN_KEYS) {
+            if (key.size == size && regionMatches(source, start, key)) {
+                return key
+            }
+        }
+        return null
+    }
+
+    private fun regionMatches(source: ByteArray, start: Int, key: ByteArray): Boolean {
+        for (i in key.indices) {
+            if (source[start + i] != key[i]) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private val KNOWN_KEYS = arrayOf(
+        ACCESS_TOKEN, TOKEN_TYPE, EXPIRES_IN, SCOPE, REFRESH_TOKEN, ERROR, ERROR_DESCRIPTION
+    )
+
+    private const val QUOTE: Byte = 0x22 // "
+    private const val BACKSLASH: Byte = 0x5C // \
+    private const val OPEN_BRACE: Byte = 0x7B // {
+    private const val CLOSE_BRACE: Byte = 0x7D // }
+    private const val OPEN_BRACKET: Byte = 0x5B // [
+    private const val CLOSE_BRACKET: Byte = 0x5D // ]
+}
@@ -0,0 +1,563 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.content.Context
+import android.os.Build
+import android.os.CancellationSignal
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import androidx.annotation.WorkerThread
+import java.io.File
+import java.io.IOException
+import java.util.Random
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Keeps access tokens so an app can skip the authorization flow while it holds a fresh one.
+ *
+ * Tokens are keyed by client ID and scope set. The order of the scopes and duplicates don't matter,
+ * and a request is served by any token whose scopes include all of the requested ones, so screens
+ * that ask for fewer scopes reuse the token of a broader login.
+ * Lookups are served from memory and never start UI, disk or network requests. Every change is also
+ * written, in the background, to a file in the app's no-backup directory. The file is encrypted
+ * with AES-GCM under a key held in the Android Keystore, so tokens survive process death.
+ * Below API level 23, where the Keystore can't hold AES keys, the store is kept in memory only.
+ *
+ * The file is read in the background when [getInstance] is first called, and lookups return null
+ * until it has been read. Call [load] from a worker thread to wait for it, for example before
+ * deciding at startup whether to show the login screen.
+ *
+ * Expiry is tracked against [SystemClock.elapsedRealtime], so changing the wall clock doesn't make
+ * a token look fresh or stale.
+ *
+ * ### Example
+ * ```kotlin
+ * val token = TokenStore.getInstance(context).getValidToken(request)
+ * if (token != null) {
+ *     callWebApi(token.accessToken)
+ * } else {
+ *     AuthorizationClient.openLoginActivity(activity, REQUEST_CODE, request)
+ * }
+ * ```
+ *
+ * With [AuthorizationConfig.Builder.setStoreTokens] enabled, tokens returned by [LoginActivity]
+ * are added automatically. With [AuthorizationConfig.Builder.setRefreshFraction] set, tokens that
+ * have a refresh token are refreshed in the background before they expire.
+ */
+class TokenStore @JvmOverloads internal constructor(
+    private val persistence: Persistence?,
+    private val clock: Clock,
+    private val executor: Executor,
+    private val refreshRequestFactory: (clientId: String, refreshToken: String) -> TokenRequest =
+        { clientId, refreshToken -> TokenRefreshRequest(clientId, refreshToken) }
+) {
+
+    /**
+     * The on-disk back of the store.
+     */
+    internal interface Persistence {
+        /**
+         * @return The data last written, or null if nothing has been written
+         */
+        @Throws(IOException::class)
+        fun read(): ByteArray?
+
+        @Throws(IOException::class)
+        fun write(data: ByteArray)
+
+        fun delete()
+    }
+
+    internal interface Clock {
+        fun elapsedRealtime(): Long
+
+        fun currentTimeMillis(): Long
+
+        companion object {
+            val SYSTEM = object : Clock {
+                override fun elapsedRealtime() = SystemClock.elapsedRealtime()
+
+                override fun currentTimeMillis() = System.currentTimeMillis()
+            }
+        }
+    }
+
+    private data class Key(val clientId: String, val scopes: ScopeSet)
+
+    private val lock = Any()
+    private val loadLock = Any()
+    private val writeLock = Any()
+    private val tokens = HashMap<Key, StoredToken>()
+    private var loaded = persistence == null
+    // Keys removed before the file was read, so the load doesn't bring their tokens back
+    private val removedBeforeLoad = HashSet<Key>()
+    private val writeScheduled = AtomicBoolean(false)
+    private val refreshes = SingleFlight<Key, TokenExchangeResponse>()
+
+    /**
+     * Runs after every change to the stored tokens, on the thread that made it.
+     */
+    @Volatile
+    internal var changeListener: Runnable? = null
+
+    /**
+     * Returns a stored token for the client ID of `request` that has at least its scopes, if it
+     * stays valid for at least `minRemainingMillis`. This is a map lookup that never reads the
+     * store from disk, so it returns null until the store has been loaded.
+     *
+     * @param request The request the token would be used in place of
+     * @param minRemainingMillis How long the token must still be valid for
+     * @return The token, or null if there is no fresh token for the request
+     */
+    @JvmOverloads
+    fun getValidToken(
+        request: AuthorizationRequest,
+        minRemainingMillis: Long = DEFAULT_MIN_REMAINING_MS
+    ): StoredToken? {
+        return getValidToken(request.clientId, request.scopeSet ?: ScopeSet.EMPTY, minRemainingMillis)
+    }
+
+    /**
+     * Returns a stored token for `clientId` that has at least `scopes`, if it stays valid for at
+     * least `minRemainingMillis`. A token stored for exactly these scopes is preferred. Otherwise
+     * the broader token that expires last is returned.
+     *
+     * @param clientId The client ID
+     * @param scopes The scopes, or null for none
+     * @param minRemainingMillis How long the token must still be valid for
+     * @return The token, or null if there is no fresh token for the client ID and scopes, or the
+     * store hasn't been loaded yet
+     */
+    @JvmOverloads
+    fun getValidToken(
+        clientId: String,
+        scopes: Array<String>?,
+        minRemainingMillis: Long = DEFAULT_MIN_REMAINING_MS
+    ): StoredToken? {
+        return getValidToken(clientId, ScopeSet.of(scopes), minRemainingMillis)
+    }
+
+    private fun getValidToken(clientId: String, scopes: ScopeSet, minRemainingMillis: Long): StoredToken? {
+        val now = clock.elapsedRealtime()
+        synchronized(lock) {
+            return find(clientId, scopes) { it.getRemainingMillis(now) >= minRemainingMillis }
+        }
+    }
+
+    /**
+     * Finds the token stored for exactly `scopes`, or else the accepted token with a superset of
+     * `scopes` that expires last. Must be called with [lock] held.
+     */
+    private fun find(clientId: String, scopes: ScopeSet, accept: (StoredToken) -> Boolean): StoredToken? {
+        val exact = tokens[Key(clientId, scopes)]
+        if (exact != null && accept(exact)) {
+            return exact
+        }
+        var best: StoredToken? = null
+        for (token in tokens.values) {
+            if (token.clientId == clientId &&
+                token.scopeSet.containsAll(scopes) &&
+                (best == null || token.expiresAt > best.expiresAt) &&
+                accept(token)
+            ) {
+                best = token
+            }
+        }
+        return best
+    }
+
+    /**
+     * Stores the token in `response` for the client ID and scopes of `request`.
+     *
+     * @param request The request that `response` answers
+     * @param response The response
+     * @return The stored token, or null if `response` doesn't hold a token
+     */
+    fun put(request: AuthorizationRequest, response: AuthorizationResponse): StoredToken? {
+        val accessToken = response.accessToken
+        if (response.type != AuthorizationResponse.Type.TOKEN || accessToken == null || response.expiresIn <= 0) {
+            return null
+        }
+        return put(
+            request.clientId,
+            request.scopeSet ?: ScopeSet.EMPTY,
+            accessToken,
+            null,
+            response.refreshToken,
+            response.expiresIn
+        )
+    }
+
+    /**
+     * Stores the token in `response` for `clientId`. The token is stored with the scopes the
+     * server granted if the response lists them, and with `scopes` otherwise.
+     *
+     * @param clientId The client ID the token was issued to
+     * @param scopes The scopes the token was requested with, or null for none
+     * @param response The response of a [TokenExchangeRequest] or [TokenRefreshRequest]
+     * @return The stored token, or null if `response` doesn't hold a token
+     */
+    fun put(clientId: String, scopes: Array<String>?, response: TokenExchangeResponse): StoredToken? {
+        val accessToken = response.accessToken
+        if (!response.isSuccess || accessToken == null || response.expiresIn <= 0) {
+            return null
+        }
+        val granted = if (response.scope.isNullOrBlank()) ScopeSet.of(scopes) else ScopeSet.parse(response.scope)
+        return put(clientId, granted, accessToken, response.tokenType, response.refreshToken, response.expiresIn)
+    }
+
+    private fun put(
+        clientId: String,
+        scopes: ScopeSet,
+        accessToken: String,
+        tokenType: String?,
+        refreshToken: String?,
+        expiresIn: Int
+    ): StoredToken {
+        val token = StoredToken(
+            clientId,
+            scopes,
+            accessToken,
+            tokenType,
+            refreshToken,
+            expiresIn,
+            clock.elapsedRealtime() + expiresIn * 1000L
+        )
+        synchronized(lock) {
+            tokens[Key(clientId, scopes)] = token
+        }
+        onChanged()
+        return token
+    }
+
+    /**
+     * Gets a new access token for the client ID and scopes of `request` with a stored refresh
+     * token, and stores it.
+     * This method performs a blocking HTTP request and should not be called on the main thread.
+     *
+     * @param request The request the token was stored for
+     * @param cancellationSignal Signal that cancels the call, or null
+     * @return The new access token or error information
+     * @see refresh
+     */
+    @JvmOverloads
+    fun refresh(
+        request: AuthorizationRequest,
+        cancellationSignal: CancellationSignal? = null
+    ): TokenExchangeResponse {
+        return refresh(request.clientId, request.scopeSet ?: ScopeSet.EMPTY, cancellationSignal)
+    }
+
+    /**
+     * Gets a new access token for `clientId` and `scopes` with the refresh token of the stored
+     * token that [getValidToken] would pick, ignoring expiry, and stores it. Concurrent calls for the same client ID and scopes, including the refreshes
+     * started by the background scheduler, share one request and all get its response.
+     * If the request is still needed by other callers, cancelling one call only stops that caller
+     * from waiting.
+     * This method performs a blocking HTTP request and should not be called on the main thread.
+     *
+     * @param clientId The client ID
+     * @param scopes The scopes, or null for none
+     * @param cancellationSignal Signal that cancels the call, or null
+     * @return The new access token or error information. The error is [ERROR_NO_REFRESH_TOKEN]
+     * if there is no stored token with a refresh token.
+     * @throws android.os.OperationCanceledException if `cancellationSignal` was cancelled
+     */
+    @JvmOverloads
+    fun refresh(
+        clientId: String,
+        scopes: Array<String>?,
+        cancellationSignal: CancellationSignal? = null
+    ): TokenExchangeResponse {
+        return refresh(clientId, ScopeSet.of(scopes), cancellationSignal)
+    }
+
+    internal fun refresh(
+        clientId: String,
+        scopes: ScopeSet,
+        cancellationSignal: CancellationSignal? = null
+    ): TokenExchangeResponse {
+        return refreshes.execute(Key(clientId, scopes), cancellationSignal) { signal ->
+            load()
+            val token = synchronized(lock) {
+                find(clientId, scopes) { it.refreshToken != null }
+            }
+            val refreshToken = token?.refreshToken
+            if (token == null || refreshToken == null) {
+                TokenExchangeResponse.fromError(ERROR_NO_REFRESH_TOKEN, "No refresh token is stored")
+            } else {
+                val response = refreshRequestFactory(clientId, refreshToken).execute(signal)
+                replace(token, response)
+                response
+            }
+        }
+    }
+
+    /**
+     * Stores the token in `response` in place of `oldToken`, unless `oldToken` was replaced or
+     * removed in the meantime.
+     *
+     * @return The stored token, or null if nothing was stored
+     */
+    internal fun replace(oldToken: StoredToken, response: TokenExchangeResponse): StoredToken? {
+        val accessToken = response.accessToken
+        if (!response.isSuccess || accessToken == null || response.expiresIn <= 0) {
+            return null
+        }
+        val token = StoredToken(
+            oldToken.clientId,
+            oldToken.scopeSet,
+            accessToken,
+            response.tokenType,
+            response.refreshToken,
+            response.expiresIn,
+            clock.elapsedRealtime() + response.expiresIn * 1000L
+        )
+        synchronized(lock) {
+            val key = Key(oldToken.clientId, oldToken.scopeSet)
+            if (tokens[key] !== oldToken) {
+                return null
+            }
+            tokens[key] = token
+        }
+        onChanged()
+        return token
+    }
+
+    /**
+     * @return The stored tokens that have a refresh token, including expired ones
+     */
+    @WorkerThread
+    internal fun getRefreshableTokens(): List<StoredToken> {
+        load()
+        synchronized(lock) {
+            return tokens.values.filter { it.refreshToken != null }
+        }
+    }
+
+    /**
+     * Removes the token [getValidToken] would return for `request`, ignoring expiry, for example
+     * after the Web API rejected it.
+     *
+     * @param request The request the token was stored for
+     */
+    fun remove(request: AuthorizationRequest) {
+        remove(request.clientId, request.scopeSet ?: ScopeSet.EMPTY)
+    }
+
+    /**
+     * Removes the token [getValidToken] would return for `clientId` and `scopes`, ignoring expiry.
+     *
+     * @param clientId The client ID
+     * @param scopes The scopes, or null for none
+     */
+    fun remove(clientId: String, scopes: Array<String>?) {
+        remove(clientId, ScopeSet.of(scopes))
+    }
+
+    private fun remove(clientId: String, scopes: ScopeSet) {
+        val removed = synchronized(lock) {
+            find(clientId, scopes) { true }?.let {
+                val key = Key(it.clientId, it.scopeSet)
+                if (!loaded) {
+                    removedBeforeLoad.add(key)
+                }
+                tokens.remove(key)
+            }
+        }
+        if (removed != null) {
+            onChanged()
+        }
+    }
+
+    /**
+     * Removes all tokens, for example when the user logs out.
+     */
+    fun clear() {
+        synchronized(lock) {
+            loaded = true
+            tokens.clear()
+        }
+        onChanged()
+    }
+
+    /**
+     * @return True once the store has been read from disk, so lookups see every stored token
+     */
+    val isLoaded: Boolean
+        get() = synchronized(lock) { loaded }
+
+    /**
+     * Reads the store from disk, if it hasn't been read yet, and returns once it has.
+     * Tokens added while the file was being read are kept over the ones in the file.
+     * This method blocks and should not be called on the main thread.
+     */
+    @WorkerThread
+    fun load() {
+        if (persistence == null) {
+            return
+        }
+        synchronized(loadLock) {
+            if (isLoaded) {
+                return
+            }
+            // Read outside of lock, so lookups on other threads don't wait for the disk
+            val stored = read(persistence)
+            synchronized(lock) {
+                if (!loaded) {
+                    for (token in stored) {
+                        val key = Key(token.clientId, token.scopeSet)
+                        if (key !in tokens && key !in removedBeforeLoad) {
+                            tokens[key] = token
+                        }
+                    }
+                    removedBeforeLoad.clear()
+                    loaded = true
+                }
+            }
+        }
+        changeListener?.run()
+    }
+
+    private fun read(persistence: Persistence): List<StoredToken> {
+        return try {
+            val data = persistence.read() ?: return emptyList()
+            TokenStoreCodec.decode(data, clock.elapsedRealtime(), clock.currentTimeMillis())
+        } catch (e: IOException) {
+            // An unreadable store, for example after the Keystore key was lost, is started over
+            Log.w(TAG, "Failed to read the token store", e)
+            persistence.delete()
+            emptyList()
+        }
+    }
+
+    private fun onChanged() {
+        scheduleWrite()
+        changeListener?.run()
+    }
+
+    private fun scheduleWrite() {
+        if (persistence == null || !writeScheduled.compareAndSet(false, true)) {
+            return
+        }
+        try {
+            executor.execute {
+                writeScheduled.set(false)
+                write(persistence)
+            }
+        } catch (e: RejectedExecutionException) {
+            writeScheduled.set(false)
+            Log.w(TAG, "Failed to schedule a token store write", e)
+        }
+    }
+
+    private fun write(persistence: Persistence) {
+        // Merge the file first, so writing tokens added before the load doesn't drop the others
+        load()
+        // Take the snapshot inside the write lock so an older snapshot can't overwrite a newer one
+        synchronized(writeLock) {
+            val snapshot = synchronized(lock) { ArrayList(tokens.values) }
+            try {
+                if (snapshot.isEmpty()) {
+                    persistence.delete()
+                } else {
+                    persistence.write(
+                        TokenStoreCodec.encode(snapshot, clock.elapsedRealtime(), clock.currentTimeMillis())
+                    )
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to write the token store", e)
+            }
+        }
+    }
+
+    companion object {
+        /**
+         * The default for how long a token must still be valid for to be returned by [getValidToken],
+         * so a token isn't handed out just before it expires
+         */
+        const val DEFAULT_MIN_REMAINING_MS = 60_000L
+
+        /**
+         * The error returned by [refresh] when no token with a refresh token is stored
+         */
+        const val ERROR_NO_REFRESH_TOKEN = "no_refresh_token"
+
+        private val TAG = TokenStore::class.java.simpleName
+        private const val FILE_NAME = "com.spotify.sdk.android.auth.tokens"
+        private const val KEY_ALIAS = "com.spotify.sdk.android.auth.TokenStore"
+
+        @Volatile
+        private var instance: TokenStore? = null
+
+        /**
+         * @param context Any context. Only its application context is kept.
+         * @return The token store of this app
+         */
+        @JvmStatic
+        fun getInstance(context: Context): TokenStore {
+            instance?.let { return it }
+            synchronized(this) {
+                instance?.let { return it }
+                val appContext = context.applicationContext ?: context
+                val persistence = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                    EncryptedTokenFile(File(appContext.noBackupFilesDir, FILE_NAME), KeystoreTokenCipher(KEY_ALIAS))
+                } else {
+                    null
+                }
+                val executor = Executor { IoExecutor.executeInBackground(it) }
+                val store = TokenStore(persistence, Clock.SYSTEM, executor)
+                if (persistence != null) {
+                    try {
+                        executor.execute { store.load() }
+                    } catch (e: RejectedExecutionException) {
+                        Log.w(TAG, "Failed to schedule loading the token store", e)
+                    }
+                }
+                TokenRefreshScheduler(
+                    store,
+                    Clock.SYSTEM,
+                    TokenRefreshScheduler.HandlerTimer(Handler(Looper.getMainLooper())),
+                    ConnectivityNetworkMonitor(appContext),
+                    executor,
+                    { AuthorizationClient.getConfig().refreshFraction },
+                    TokenRefreshScheduler.DEFAULT_JITTER_FRACTION,
+                    Random()
+                ).start()
+                instance = store
+                return store
+            }
+        }
+
+        /**
+         * Lets the store react to a new [AuthorizationConfig], for example to start refreshing.
+         */
+        internal fun onConfigChanged() {
+            instance?.changeListener?.run()
+        }
+    }
+}
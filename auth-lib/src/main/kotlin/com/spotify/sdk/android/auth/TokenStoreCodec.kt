@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/**
+ * Serializes the contents of [TokenStore] for the on-disk back.
+ *
+ * Expiry times are kept in the [android.os.SystemClock.elapsedRealtime] time base, which restarts
+ * at every boot. The file therefore also records when the device booted in wall-clock time. If the
+ * boot time read back differs, the device has restarted, and the remaining lifetime is worked out
+ * from the wall clock instead, capped at the token's original lifetime so a clock set backwards
+ * can't extend it.
+ */
+internal object TokenStoreCodec {
+
+    private const val VERSION = 1
+
+    /** How far the computed boot time may drift, from clock adjustments, within one boot */
+    const val BOOT_TIME_TOLERANCE_MS = 60_000L
+
+    @Throws(IOException::class)
+    fun encode(tokens: Collection<StoredToken>, elapsedRealtime: Long, currentTimeMillis: Long): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { out ->
+            out.writeByte(VERSION)
+            out.writeLong(currentTimeMillis - elapsedRealtime)
+            out.writeInt(tokens.size)
+            for (token in tokens) {
+                out.writeUTF(token.clientId)
+                // Names rather than bits, so the file stays valid when scopes are added
+                out.writeUTF(token.scopeSet.toString())
+                out.writeUTF(token.accessToken)
+                writeNullableUTF(out, token.tokenType)
+                writeNullableUTF(out, token.refreshToken)
+                out.writeInt(token.expiresIn)
+                out.writeLong(token.expiresAt)
+            }
+        }
+        return bytes.toByteArray()
+    }
+
+    /**
+     * @return The stored tokens, leaving out expired tokens that can't be refreshed
+     */
+    @Throws(IOException::class)
+    fun decode(data: ByteArray, elapsedRealtime: Long, currentTimeMillis: Long): List<StoredToken> {
+        DataInputStream(ByteArrayInputStream(data)).use { input ->
+            val version = input.readUnsignedByte()
+            if (version != VERSION) {
+                throw IOException("Unsupported token store version $version")
+            }
+            val savedBootTime = input.readLong()
+            val bootTime = currentTimeMillis - elapsedRealtime
+            val sameBoot = Math.abs(bootTime - savedBootTime) <= BOOT_TIME_TOLERANCE_MS
+
+            val count = input.readInt()
+            if (count < 0) {
+                throw IOException("Invalid token count $count")
+            }
+            val tokens = ArrayList<StoredToken>(count)
+            repeat(count) {
+                val clientId = input.readUTF()
+                val scopes = input.readUTF()
+                val accessToken = input.readUTF()
+                val tokenType = readNullableUTF(input)
+                val refreshToken = readNullableUTF(input)
+                val expiresIn = input.readInt()
+                val savedExpiresAt = input.readLong()
+
+                val expiresAt = if (sameBoot) {
+                    savedExpiresAt
+                } else {
+                    val remaining = Math.min(
+                        savedBootTime + savedExpiresAt - currentTimeMillis,
+                        expiresIn * 1000L
+                    )
+                    elapsedRealtime + remaining
+                }
+                if (expiresAt > elapsedRealtime || refreshToken != null) {
+                    tokens.add(
+                        StoredToken(
+                            clientId,
+                            ScopeSet.parse(scopes),
+                            accessToken,
+                            tokenType,
+                            refreshToken,
+                            expiresIn,
+                            expiresAt
+                        )
+                    )
+                }
+            }
+            return tokens
+        }
+    }
+
+    private fun writeNullableUTF(out: DataOutputStream, value: String?) {
+        out.writeBoolean(value != null)
+        if (value != null) {
+            out.writeUTF(value)
+        }
+    }
+
+    private fun readNullableUTF(input: DataInputStream): String? {
+        return if (input.readBoolean()) input.readUTF() else null
+    }
+}
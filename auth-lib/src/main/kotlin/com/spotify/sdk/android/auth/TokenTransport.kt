@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth
+
+import android.os.CancellationSignal
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * The HTTP layer used to talk to the Spotify accounts token endpoint.
+ * The default implementation is [HttpUrlConnectionTransport]. Provide your own to route
+ * token requests through the HTTP stack your app already uses.
+ */
+interface TokenTransport {
+
+    /**
+     * Reads the response of a token request.
+     */
+    fun interface ResponseReader<T> {
+        /**
+         * @param statusCode The HTTP status code
+         * @param body The response body, or null if the server didn't send one.
+         * The transport closes it after this method returns.
+         */
+        @Throws(IOException::class)
+        fun read(statusCode: Int, body: InputStream?): T
+    }
+
+    /**
+     * Sends a form-encoded POST request and hands the response to `reader`.
+     * This method blocks and should not be called on the main thread.
+     *
+     * @param url The endpoint URL
+     * @param formBody The `application/x-www-form-urlencoded` request body
+     * @param cancellationSignal Aborts the request when cancelled, or null if it can't be cancelled.
+     * Implementations should close the connection on cancellation so the calling thread is released.
+     * @param reader Reads the response
+     * @return The value returned by `reader`
+     * @throws IOException if the request fails or was aborted
+     */
+    @Throws(IOException::class)
+    fun <T> post(
+        url: String,
+        formBody: ByteArray,
+        cancellationSignal: CancellationSignal?,
+        reader: ResponseReader<T>
+    ): T
+
+    /**
+     * Implemented by transports that can set up a connection ahead of the first request.
+     */
+    interface Preconnectable {
+        /**
+         * Resolves the host of `url`, connects to it and completes the TLS handshake, leaving
+         * the connection idle in the transport's pool for the next request to the same host.
+         * This method blocks and should not be called on the main thread.
+         *
+         * @throws IOException if the connection can't be established
+         */
+        @Throws(IOException::class)
+        fun preconnect(url: String)
+    }
+}
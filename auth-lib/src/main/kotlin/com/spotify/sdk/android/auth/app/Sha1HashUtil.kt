@@ -1,6 +1,6 @@
 package com.spotify.sdk.android.auth.app
 
-import java.security.MessageDigest
+import com.spotify.sdk.android.auth.DigestProvider
 import java.security.NoSuchAlgorithmException
 
 interface Sha1HashUtil {
@@ -11,10 +11,14 @@ class Sha1HashUtilImpl : Sha1HashUtil {
 
     override fun sha1Hash(toHash: String): String? {
         return try {
-            val digest = MessageDigest.getInstance("SHA-1")
-            val bytes = toHash.toByteArray(Charsets.UTF_8)
-            digest.update(bytes, 0, bytes.size)
-            val hashedBytes = digest.digest()
+            val sha1 = DigestProvider.SHA1
+            val hashedBytes = sha1.outputBuffer()
+            val asciiLength = sha1.writeAscii(toHash)
+            if (asciiLength >= 0) {
+                sha1.hashInto(sha1.inputBuffer(asciiLength), 0, asciiLength, hashedBytes, 0)
+            } else {
+                sha1.hashInto(toHash.toByteArray(Charsets.UTF_8), hashedBytes, 0)
+            }
             bytesToHex(hashedBytes)
         } catch (ignored: NoSuchAlgorithmException) {
             null
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.app
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.Build
+import android.os.PatternMatcher
+
+/**
+ * Process-wide cache of the installed Spotify application lookup.
+ *
+ * Resolving the Spotify app takes several PackageManager calls and a signature check for
+ * every package variant. The result can only change when a Spotify package is installed,
+ * updated or removed, so it is kept until one of those broadcasts is received.
+ *
+ * The result depends on the [Sha1HashUtil] that verified the signatures, so it is only
+ * returned to callers using the same verifier. All [Sha1HashUtilImpl] instances count as one.
+ */
+internal object SpotifyAppDiscoveryCache {
+
+    private val lock = Any()
+
+    private class Entry(val verifierKey: Any, val appInfo: SpotifyAppInfo)
+
+    @Volatile
+    private var entry: Entry? = null
+    private var generation = 0
+    private var receiverContext: Context? = null
+
+    private val packageChangeReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            if (packageName.startsWith(SpotifyNativeAuthUtil.SPOTIFY_PACKAGE_NAME)) {
+                clear()
+            }
+        }
+    }
+
+    /**
+     * Returns the cached lookup result, running [lookup] if nothing is cached for [sha1HashUtil].
+     * Contexts without an application context (e.g. mocks) are never cached.
+     */
+    fun get(context: Context, sha1HashUtil: Sha1HashUtil, lookup: () -> SpotifyAppInfo): SpotifyAppInfo {
+        val verifierKey = verifierKey(sha1HashUtil)
+        entry?.let { if (it.verifierKey == verifierKey) return it.appInfo }
+
+        val appContext = context.applicationContext ?: return lookup()
+        val startGeneration = synchronized(lock) {
+            registerReceiverIfNeeded(appContext)
+            generation
+        }
+
+        val result = lookup()
+        synchronized(lock) {
+            // Drop the result if a package change arrived while we were looking it up
+            if (generation == startGeneration) {
+                entry = Entry(verifierKey, result)
+            }
+        }
+        return result
+    }
+
+    fun clear() {
+        synchronized(lock) {
+            generation++
+            entry = null
+        }
+    }
+
+    /**
+     * Clears the cached result and stops listening for package changes.
+     */
+    fun reset() {
+        synchronized(lock) {
+            clear()
+            receiverContext?.unregisterReceiver(packageChangeReceiver)
+            receiverContext = null
+        }
+    }
+
+    private fun verifierKey(sha1HashUtil: Sha1HashUtil): Any =
+        if (sha1HashUtil is Sha1HashUtilImpl) Sha1HashUtilImpl::class.java else sha1HashUtil
+
+    private fun registerReceiverIfNeeded(appContext: Context) {
+        if (receiverContext != null) return
+
+        val filter = IntentFilter().apply {
+            addAction(Intent.ACTION_PACKAGE_ADDED)
+            addAction(Intent.ACTION_PACKAGE_REPLACED)
+            addAction(Intent.ACTION_PACKAGE_REMOVED)
+            addDataScheme("package")
+            addDataSchemeSpecificPart(SpotifyNativeAuthUtil.SPOTIFY_PACKAGE_NAME, PatternMatcher.PATTERN_PREFIX)
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            appContext.registerReceiver(packageChangeReceiver, filter, Context.RECEIVER_NOT_EXPORTED)
+        } else {
+            appContext.registerReceiver(packageChangeReceiver, filter)
+        }
+        receiverContext = appContext
+    }
+}
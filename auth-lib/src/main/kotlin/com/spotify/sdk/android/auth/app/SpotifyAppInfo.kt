@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.app
+
+import android.os.Parcelable
+import kotlinx.parcelize.IgnoredOnParcel
+import kotlinx.parcelize.Parcelize
+
+/**
+ * Immutable result of probing the device for an installed Spotify application.
+ * It is parcelable so a probe made by the calling activity can be handed to [com.spotify.sdk.android.auth.LoginActivity].
+ *
+ * @property packageName The package handling the Spotify auth flow, or null if none was found
+ * @property versionCode The version code of that package, or -1 if none was found
+ * @property isVerified True if the package is signed with a known Spotify certificate
+ */
+@Parcelize
+data class SpotifyAppInfo(
+    val packageName: String?,
+    val versionCode: Int,
+    val isVerified: Boolean
+) : Parcelable {
+
+    /**
+     * True if a Spotify application with a valid signature is installed.
+     */
+    @IgnoredOnParcel
+    val isInstalled: Boolean
+        get() = packageName != null && isVerified
+
+    /**
+     * Version code of the installed Spotify application, or -1 if it is missing or not verified.
+     */
+    @IgnoredOnParcel
+    val verifiedVersionCode: Int
+        get() = if (isInstalled) versionCode else -1
+
+    companion object {
+        @JvmField
+        val NOT_INSTALLED = SpotifyAppInfo(null, -1, false)
+    }
+}
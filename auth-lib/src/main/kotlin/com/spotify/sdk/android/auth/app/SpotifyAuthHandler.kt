@@ -24,19 +24,34 @@ package com.spotify.sdk.android.auth.app
 import android.app.Activity
 import com.spotify.sdk.android.auth.AuthorizationHandler
 import com.spotify.sdk.android.auth.AuthorizationRequest
+import com.spotify.sdk.android.auth.TokenEndpointPreconnector
 
 class SpotifyAuthHandler : AuthorizationHandler {
 
     private var spotifyNativeAuthUtil: SpotifyNativeAuthUtil? = null
+    private var spotifyAppInfo: SpotifyAppInfo? = null
+
+    /**
+     * Sets the result of an earlier Spotify app probe so [start] doesn't have to query
+     * the package manager again. Pass null to probe on start.
+     */
+    fun setSpotifyAppInfo(spotifyAppInfo: SpotifyAppInfo?) {
+        this.spotifyAppInfo = spotifyAppInfo
+    }
 
     override fun start(contextActivity: Activity, request: AuthorizationRequest): Boolean {
         val util = SpotifyNativeAuthUtil(
             contextActivity,
             request,
-            Sha1HashUtilImpl()
+            Sha1HashUtilImpl(),
+            spotifyAppInfo
         )
         spotifyNativeAuthUtil = util
-        return util.startAuthActivity()
+        val started = util.startAuthActivity()
+        if (started) {
+            TokenEndpointPreconnector.onAuthStarted(request)
+        }
+        return started
     }
 
     override fun stop() {
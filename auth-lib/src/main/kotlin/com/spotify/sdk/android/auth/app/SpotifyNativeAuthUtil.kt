@@ -24,13 +24,13 @@ package com.spotify.sdk.android.auth.app
 import android.annotation.SuppressLint
 import android.app.Activity
 import android.content.ActivityNotFoundException
-import android.content.ComponentName
 import android.content.Context
 import android.content.Intent
 import android.content.pm.PackageInfo
 import android.content.pm.PackageManager
 import android.content.pm.Signature
 import android.os.Build
+import androidx.annotation.RestrictTo
 import androidx.annotation.VisibleForTesting
 import com.spotify.sdk.android.auth.AuthorizationRequest
 import com.spotify.sdk.android.auth.IntentExtras
@@ -40,11 +40,13 @@ import com.spotify.sdk.android.auth.PKCEInformation
 class SpotifyNativeAuthUtil @JvmOverloads constructor(
     private val contextActivity: Activity,
     private val request: AuthorizationRequest,
-    private val sha1HashUtil: Sha1HashUtil = Sha1HashUtilImpl()
+    private val sha1HashUtil: Sha1HashUtil = Sha1HashUtilImpl(),
+    private val spotifyAppInfo: SpotifyAppInfo? = null
 ) {
 
     fun startAuthActivity(): Boolean {
-        val intent = createAuthActivityIntent(contextActivity, sha1HashUtil) ?: return false
+        val appInfo = spotifyAppInfo ?: getSpotifyAppInfo(contextActivity, sha1HashUtil)
+        val intent = createAuthActivityIntent(appInfo) ?: return false
 
         intent.putExtra(IntentExtras.KEY_VERSION, PROTOCOL_VERSION)
         intent.putExtra(IntentExtras.KEY_CLIENT_ID, request.clientId)
@@ -82,7 +84,7 @@ class SpotifyNativeAuthUtil @JvmOverloads constructor(
         private const val PROTOCOL_VERSION = 1
 
         private const val SPOTIFY_AUTH_ACTIVITY_ACTION = "com.spotify.sso.action.START_AUTH_FLOW"
-        private const val SPOTIFY_PACKAGE_NAME = "com.spotify.music"
+        internal const val SPOTIFY_PACKAGE_NAME = "com.spotify.music"
         private val SPOTIFY_PACKAGE_SUFFIXES = arrayOf(
             ".debug",
             ".canary",
@@ -90,15 +92,6 @@ class SpotifyNativeAuthUtil @JvmOverloads constructor(
             ""
         )
 
-        private val SPOTIFY_SIGNATURE_HASH = arrayOf(
-            "25a9b2d2745c098361edaa3b87936dc29a28e7f1",
-            "80abdd17dcc4cb3a33815d354355bf87c9378624",
-            "88df4d670ed5e01fc7b3eff13b63258628ff5a00",
-            "d834ae340d1e854c5f4092722f9788216d9221e5",
-            "1cbedd9e7345f64649bad2b493a20d9eea955352",
-            "4b3d76a2de89033ea830f476a1f815692938e33b"
-        )
-
         /**
          * Creates an intent that will launch the auth flow on the currently installed Spotify application
          * @param context The context of the caller
@@ -112,17 +105,44 @@ class SpotifyNativeAuthUtil @JvmOverloads constructor(
         @VisibleForTesting
         @JvmStatic
         fun createAuthActivityIntent(context: Context, sha1HashUtil: Sha1HashUtil): Intent? {
-            for (suffix in SPOTIFY_PACKAGE_SUFFIXES) {
-                val intent = tryResolveActivity(
-                    context,
-                    SPOTIFY_PACKAGE_NAME + suffix,
-                    sha1HashUtil
-                )
-                if (intent != null) {
-                    return intent
-                }
+            return createAuthActivityIntent(getSpotifyAppInfo(context, sha1HashUtil))
+        }
+
+        private fun createAuthActivityIntent(appInfo: SpotifyAppInfo): Intent? {
+            if (!appInfo.isInstalled) {
+                return null
             }
-            return null
+            val intent = Intent(SPOTIFY_AUTH_ACTIVITY_ACTION)
+            intent.`package` = appInfo.packageName
+            return intent
+        }
+
+        /**
+         * Probes the device for an installed Spotify application.
+         * The result is cached until a Spotify package is installed, updated or removed.
+         *
+         * @param context The context of the caller, used to query the package manager
+         * @return Information about the installed Spotify application, or [SpotifyAppInfo.NOT_INSTALLED]
+         */
+        @JvmStatic
+        fun getSpotifyAppInfo(context: Context): SpotifyAppInfo {
+            return getSpotifyAppInfo(context, Sha1HashUtilImpl())
+        }
+
+        @VisibleForTesting
+        @JvmStatic
+        fun getSpotifyAppInfo(context: Context, sha1HashUtil: Sha1HashUtil): SpotifyAppInfo {
+            return SpotifyAppDiscoveryCache.get(context, sha1HashUtil) { probeSpotifyApp(context, sha1HashUtil) }
+        }
+
+        /**
+         * Clears the cached Spotify app lookup. The cache is otherwise only invalidated
+         * when a Spotify package is installed, updated or removed.
+         */
+        @VisibleForTesting
+        @JvmStatic
+        fun clearDiscoveryCache() {
+            SpotifyAppDiscoveryCache.reset()
         }
 
         /**
@@ -139,7 +159,7 @@ class SpotifyNativeAuthUtil @JvmOverloads constructor(
         @VisibleForTesting
         @JvmStatic
         fun isSpotifyInstalled(context: Context, sha1HashUtil: Sha1HashUtil): Boolean {
-            return createAuthActivityIntent(context, sha1HashUtil) != null
+            return getSpotifyAppInfo(context, sha1HashUtil).isInstalled
         }
 
         /**
@@ -156,20 +176,7 @@ class SpotifyNativeAuthUtil @JvmOverloads constructor(
         @VisibleForTesting
         @JvmStatic
         fun getSpotifyAppVersionCode(context: Context, sha1HashUtil: Sha1HashUtil): Int {
-            for (suffix in SPOTIFY_PACKAGE_SUFFIXES) {
-                val packageName = SPOTIFY_PACKAGE_NAME + suffix
-                try {
-                    val packageInfo = context.packageManager.getPackageInfo(packageName, 0)
-
-                    // Validate signature before returning version info
-                    if (validateSignature(context, packageName, sha1HashUtil)) {
-                        return packageInfo.versionCode
-                    }
-                } catch (ignored: PackageManager.NameNotFoundException) {
-                    // Try next package variant
-                }
-            }
-            return -1 // Not found or signature validation failed
+            return getSpotifyAppInfo(context, sha1HashUtil).verifiedVersionCode
         }
 
         /**
@@ -191,82 +198,83 @@ class SpotifyNativeAuthUtil @JvmOverloads constructor(
             return currentVersion >= minVersionCode
         }
 
-        private fun tryResolveActivity(
-            context: Context,
-            packageName: String,
-            sha1HashUtil: Sha1HashUtil
-        ): Intent? {
-            val intent = Intent(SPOTIFY_AUTH_ACTIVITY_ACTION)
-            intent.`package` = packageName
+        /**
+         * Checks APK signing certificates against the Spotify ones, as the Spotify app lookup
+         * does for every candidate package. For the library's benchmarks.
+         *
+         * @return True if there is at least one certificate and all of them are Spotify ones
+         */
+        @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+        @VisibleForTesting
+        @JvmStatic
+        fun verifySpotifySignatures(signatures: Array<Signature>?, sha1HashUtil: Sha1HashUtil): Boolean {
+            return SpotifySignatureVerifier.verify(sha1HashUtil, signatures)
+        }
 
-            val componentName = intent.resolveActivity(context.packageManager) ?: return null
+        /**
+         * Finds the Spotify packages handling the auth flow with a single query and fetches
+         * the version and signing info of the preferred one in the same package info call.
+         * Further calls are only made if the preferred package fails signature validation.
+         */
+        private fun probeSpotifyApp(context: Context, sha1HashUtil: Sha1HashUtil): SpotifyAppInfo {
+            val packageManager = context.packageManager
+            val candidates = packageManager
+                .queryIntentActivities(Intent(SPOTIFY_AUTH_ACTIVITY_ACTION), 0)
+                .mapNotNull { it.activityInfo?.packageName }
+                .filter { packageName -> packagePriority(packageName) >= 0 }
+                .distinct()
+                .sortedBy { packageName -> packagePriority(packageName) }
 
-            if (!validateSignature(context, componentName.packageName, sha1HashUtil)) {
-                return null
+            var unverified: SpotifyAppInfo? = null
+            for (packageName in candidates) {
+                val packageInfo = getSigningPackageInfo(packageManager, packageName) ?: continue
+                @Suppress("DEPRECATION")
+                val versionCode = packageInfo.versionCode
+                if (validateSignature(packageInfo, sha1HashUtil)) {
+                    return SpotifyAppInfo(packageName, versionCode, true)
+                }
+                if (unverified == null) {
+                    unverified = SpotifyAppInfo(packageName, versionCode, false)
+                }
             }
+            return unverified ?: SpotifyAppInfo.NOT_INSTALLED
+        }
 
-            return intent
+        private fun packagePriority(packageName: String): Int {
+            for (i in SPOTIFY_PACKAGE_SUFFIXES.indices) {
+                if (packageName == SPOTIFY_PACKAGE_NAME + SPOTIFY_PACKAGE_SUFFIXES[i]) {
+                    return i
+                }
+            }
+            return -1
         }
 
         @SuppressLint("PackageManagerGetSignatures")
-        private fun validateSignature(
-            context: Context,
-            spotifyPackageName: String,
-            sha1HashUtil: Sha1HashUtil
-        ): Boolean {
+        private fun getSigningPackageInfo(packageManager: PackageManager, packageName: String): PackageInfo? {
             return try {
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-                    val packageInfo = context.packageManager.getPackageInfo(
-                        spotifyPackageName,
-                        PackageManager.GET_SIGNING_CERTIFICATES
-                    )
-
-                    val signingInfo = packageInfo.signingInfo ?: return false
-                    if (signingInfo.hasMultipleSigners()) {
-                        validateSignatures(sha1HashUtil, signingInfo.apkContentsSigners)
-                    } else {
-                        validateSignatures(sha1HashUtil, signingInfo.signingCertificateHistory)
-                    }
+                    packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNING_CERTIFICATES)
                 } else {
                     @Suppress("DEPRECATION")
-                    val packageInfo = context.packageManager.getPackageInfo(
-                        spotifyPackageName,
-                        PackageManager.GET_SIGNATURES
-                    )
-
-                    @Suppress("DEPRECATION")
-                    validateSignatures(sha1HashUtil, packageInfo.signatures)
+                    packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNATURES)
                 }
             } catch (ignored: PackageManager.NameNotFoundException) {
-                false
+                null
             }
         }
 
-        private fun validateSignatures(
-            sha1HashUtil: Sha1HashUtil,
-            apkSignatures: Array<Signature>?
-        ): Boolean {
-            if (apkSignatures == null || apkSignatures.isEmpty()) {
-                return false
-            }
-
-            for (actualApkSignature in apkSignatures) {
-                val signatureString = actualApkSignature.toCharsString()
-                val sha1Signature = sha1HashUtil.sha1Hash(signatureString)
-                var matchesSignature = false
-                for (knownSpotifyHash in SPOTIFY_SIGNATURE_HASH) {
-                    if (knownSpotifyHash.equals(sha1Signature, ignoreCase = true)) {
-                        matchesSignature = true
-                        break
-                    }
-                }
-
-                // Abort upon finding a non matching signature
-                if (!matchesSignature) {
-                    return false
+        private fun validateSignature(packageInfo: PackageInfo, sha1HashUtil: Sha1HashUtil): Boolean {
+            return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                val signingInfo = packageInfo.signingInfo ?: return false
+                if (signingInfo.hasMultipleSigners()) {
+                    SpotifySignatureVerifier.verify(sha1HashUtil, signingInfo.apkContentsSigners)
+                } else {
+                    SpotifySignatureVerifier.verify(sha1HashUtil, signingInfo.signingCertificateHistory)
                 }
+            } else {
+                @Suppress("DEPRECATION")
+                SpotifySignatureVerifier.verify(sha1HashUtil, packageInfo.signatures)
             }
-            return true
         }
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.app
+
+import android.content.pm.Signature
+import com.spotify.sdk.android.auth.DigestProvider
+import java.security.DigestException
+import java.security.NoSuchAlgorithmException
+
+/**
+ * Checks APK signatures against the known Spotify signing certificates.
+ *
+ * The known hashes are SHA-1 digests of the hex form of each certificate. With the default
+ * [Sha1HashUtilImpl] the hex form is written into a reusable byte buffer and hashed into a
+ * reusable digest buffer, which is then compared in constant time against the known digests,
+ * so no intermediate strings are created. Verdicts are memoized per certificate.
+ */
+internal object SpotifySignatureVerifier {
+
+    private const val SHA1_LENGTH = 20
+    private const val MAX_MEMOIZED_VERDICTS = 16
+
+    private val SPOTIFY_SIGNATURE_HASH = arrayOf(
+        "25a9b2d2745c098361edaa3b87936dc29a28e7f1",
+        "80abdd17dcc4cb3a33815d354355bf87c9378624",
+        "88df4d670ed5e01fc7b3eff13b63258628ff5a00",
+        "d834ae340d1e854c5f4092722f9788216d9221e5",
+        "1cbedd9e7345f64649bad2b493a20d9eea955352",
+        "4b3d76a2de89033ea830f476a1f815692938e33b"
+    )
+
+    private val SPOTIFY_SIGNATURE_DIGESTS: Array<ByteArray> =
+        Array(SPOTIFY_SIGNATURE_HASH.size) { i -> hexToBytes(SPOTIFY_SIGNATURE_HASH[i]) }
+
+    private val HEX_DIGITS = "0123456789abcdef".toByteArray(Charsets.US_ASCII)
+
+    private val lock = Any()
+    private val verdicts = HashMap<Signature, Boolean>()
+    private val digestBuffer = ByteArray(SHA1_LENGTH)
+    private var hexBuffer = ByteArray(0)
+
+    /**
+     * @return true if there is at least one signature and all of them are known Spotify signatures
+     */
+    fun verify(sha1HashUtil: Sha1HashUtil, apkSignatures: Array<Signature>?): Boolean {
+        if (apkSignatures == null || apkSignatures.isEmpty()) {
+            return false
+        }
+
+        for (actualApkSignature in apkSignatures) {
+            // Abort upon finding a non matching signature
+            if (!isSpotifySignature(sha1HashUtil, actualApkSignature)) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private fun isSpotifySignature(sha1HashUtil: Sha1HashUtil, signature: Signature): Boolean {
+        // A substituted hash function only offers the string API, and its verdicts can't be shared
+        if (sha1HashUtil !is Sha1HashUtilImpl) {
+            val sha1Signature = sha1HashUtil.sha1Hash(signature.toCharsString())
+            return SPOTIFY_SIGNATURE_HASH.any { it.equals(sha1Signature, ignoreCase = true) }
+        }
+
+        synchronized(lock) {
+            verdicts[signature]?.let { return it }
+
+            val verdict = hashSignature(signature) && matchesSpotifyDigest(digestBuffer)
+            if (verdicts.size >= MAX_MEMOIZED_VERDICTS) {
+                verdicts.clear()
+            }
+            verdicts[signature] = verdict
+            return verdict
+        }
+    }
+
+    /**
+     * Hashes the hex form of the signature into [digestBuffer]. Must be called holding [lock].
+     */
+    private fun hashSignature(signature: Signature): Boolean {
+        val bytes = signature.toByteArray() ?: return false
+        val hexLength = bytes.size * 2
+        if (hexBuffer.size < hexLength) {
+            hexBuffer = ByteArray(hexLength)
+        }
+        for (i in bytes.indices) {
+            val v = bytes[i].toInt() and 0xFF
+            hexBuffer[i * 2] = HEX_DIGITS[v ushr 4]
+            hexBuffer[i * 2 + 1] = HEX_DIGITS[v and 0x0F]
+        }
+
+        return try {
+            DigestProvider.SHA1.hashInto(hexBuffer, 0, hexLength, digestBuffer, 0)
+            true
+        } catch (ignored: NoSuchAlgorithmException) {
+            false
+        } catch (ignored: DigestException) {
+            false
+        }
+    }
+
+    private fun matchesSpotifyDigest(actual: ByteArray): Boolean {
+        var matches = false
+        for (known in SPOTIFY_SIGNATURE_DIGESTS) {
+            matches = matches or constantTimeEquals(known, actual)
+        }
+        return matches
+    }
+
+    private fun constantTimeEquals(a: ByteArray, b: ByteArray): Boolean {
+        if (a.size != b.size) {
+            return false
+        }
+        var diff = 0
+        for (i in a.indices) {
+            diff = diff or (a[i].toInt() xor b[i].toInt())
+        }
+        return diff == 0
+    }
+
+    private fun hexToBytes(hex: String): ByteArray {
+        val bytes = ByteArray(hex.length / 2)
+        for (i in bytes.indices) {
+            bytes[i] = ((Character.digit(hex[i * 2], 16) shl 4) + Character.digit(hex[i * 2 + 1], 16)).toByte()
+        }
+        return bytes
+    }
+}
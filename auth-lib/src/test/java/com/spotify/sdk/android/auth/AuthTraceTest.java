@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Robolectric.buildActivity;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.Q)
+public class AuthTraceTest {
+
+    @After
+    public void tearDown() {
+        AuthTrace.INSTANCE.endAsync(AuthTrace.TIME_TO_AUTH_UI);
+        AuthTrace.INSTANCE.endAsync(AuthTrace.TIME_TO_RESPONSE);
+    }
+
+    @Test
+    public void shouldNotBeginOpenSectionAgain() {
+        AuthTrace.INSTANCE.beginAsync(AuthTrace.TIME_TO_RESPONSE);
+        AuthTrace.INSTANCE.beginAsync(AuthTrace.TIME_TO_RESPONSE);
+        AuthTrace.INSTANCE.endAsync(AuthTrace.TIME_TO_RESPONSE);
+
+        assertFalse(AuthTrace.INSTANCE.isAsyncSectionOpen(AuthTrace.TIME_TO_RESPONSE));
+    }
+
+    @Test
+    public void shouldIgnoreEndOfSectionThatIsNotOpen() {
+        AuthTrace.INSTANCE.endAsync(AuthTrace.TIME_TO_AUTH_UI);
+        AuthTrace.INSTANCE.beginAsync(AuthTrace.TIME_TO_AUTH_UI);
+
+        assertTrue(AuthTrace.INSTANCE.isAsyncSectionOpen(AuthTrace.TIME_TO_AUTH_UI));
+    }
+
+    @Test
+    public void shouldEndTimeToAuthUiWhenLoginActivityStops() {
+        AuthTrace.INSTANCE.beginAsync(AuthTrace.TIME_TO_AUTH_UI);
+
+        buildActivity(LoginActivity.class).create().start().stop();
+
+        assertFalse(AuthTrace.INSTANCE.isAsyncSectionOpen(AuthTrace.TIME_TO_AUTH_UI));
+    }
+
+    @Test
+    public void shouldEndTimeToResponseWhenLoginActivityIsDestroyed() {
+        AuthTrace.INSTANCE.beginAsync(AuthTrace.TIME_TO_RESPONSE);
+
+        buildActivity(LoginActivity.class).create().destroy();
+
+        assertFalse(AuthTrace.INSTANCE.isAsyncSectionOpen(AuthTrace.TIME_TO_RESPONSE));
+    }
+}
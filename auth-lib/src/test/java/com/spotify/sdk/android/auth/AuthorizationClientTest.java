@@ -26,6 +26,8 @@ import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
 
+import com.spotify.sdk.android.auth.app.SpotifyAppInfo;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
@@ -38,6 +40,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -215,4 +218,26 @@ public class AuthorizationClientTest {
         assertNotNull(extractedRequest.getPkceInformation().getChallenge());
         assertEquals("S256", extractedRequest.getPkceInformation().getCodeChallengeMethod());
     }
+
+    @Test
+    public void createLoginActivityIntentShouldCarrySpotifyAppInfo() throws Exception {
+        AuthorizationRequest authorizationRequest = new AuthorizationRequest.Builder(
+                "test_client_id",
+                AuthorizationResponse.Type.TOKEN,
+                "redirect://uri"
+        ).build();
+
+        Activity activity = mock(Activity.class);
+        PackageManager packageManager = mock(PackageManager.class);
+        when(activity.getPackageManager()).thenReturn(packageManager);
+
+        Intent intent = AuthorizationClient.createLoginActivityIntent(activity, authorizationRequest);
+
+        SpotifyAppInfo appInfo = intent
+                .getBundleExtra(LoginActivity.EXTRA_AUTH_REQUEST)
+                .getParcelable(LoginActivity.SPOTIFY_APP_INFO_KEY);
+
+        assertEquals(SpotifyAppInfo.NOT_INSTALLED, appInfo);
+        verify(packageManager, times(1)).queryIntentActivities(any(Intent.class), anyInt());
+    }
 }
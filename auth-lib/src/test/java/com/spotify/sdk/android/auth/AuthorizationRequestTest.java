@@ -22,16 +22,25 @@
 package com.spotify.sdk.android.auth;
 
 import android.net.Uri;
+import android.os.Bundle;
 import android.os.Parcel;
 
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 public class AuthorizationRequestTest {
@@ -42,6 +51,11 @@ public class AuthorizationRequestTest {
 
     private String defaultCampaign = AuthorizationRequest.ANDROID_SDK;
 
+    @After
+    public void tearDown() {
+        AuthorizationClient.setConfig(AuthorizationConfig.DEFAULT);
+    }
+
     private Uri.Builder getBaseAuthUri(String clientId, String responseType, String redirectUrl, String campaign) {
         Uri.Builder uriBuilder = new Uri.Builder();
         uriBuilder.scheme(AuthorizationRequest.ACCOUNTS_SCHEME)
@@ -91,6 +105,30 @@ public class AuthorizationRequestTest {
 
     }
 
+    @Test
+    public void shouldBuildUriOnce() {
+        AuthorizationRequest authorizationRequest = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{"streaming"})
+                .setCustomParam("key", "value")
+                .build();
+
+        assertSame(authorizationRequest.toUri(), authorizationRequest.toUri());
+    }
+
+    @Test
+    public void shouldNotChangeBuiltRequestWhenBuilderIsReused() {
+        AuthorizationRequest.Builder builder = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setCustomParam("key", "value");
+        AuthorizationRequest first = builder.build();
+        Uri firstUri = first.toUri();
+
+        AuthorizationRequest second = builder.setCustomParam("other", "value").build();
+
+        assertNull(first.getCustomParam("other"));
+        assertEquals(firstUri, first.toUri());
+        assertEquals("value", second.getCustomParam("other"));
+    }
+
     @Test
     public void shouldSetScopes() {
         String[] expectedScopes = {"scope1", "scope2"};
@@ -137,6 +175,101 @@ public class AuthorizationRequestTest {
         assertEquals(uri, authorizationRequest.toUri());
     }
 
+    @Test
+    public void shouldKeepCallerScopesAndSendCanonicalScopeParameter() {
+        String[] scopes = {"custom", "user-read-private", "streaming", "custom"};
+
+        AuthorizationRequest authorizationRequest = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(scopes)
+                .build();
+
+        assertSame(scopes, authorizationRequest.getScopes());
+        assertEquals(Arrays.asList("streaming", "user-read-private", "custom"),
+                authorizationRequest.getScopeSet().toList());
+        assertEquals("streaming user-read-private custom",
+                authorizationRequest.toUri().getQueryParameter(AccountsQueryParameters.SCOPE));
+    }
+
+    @Test
+    public void shouldCompareScopesAsSets() {
+        AuthorizationRequest request = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{"user-read-private", "streaming"})
+                .build();
+        AuthorizationRequest reordered = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{"streaming", "user-read-private"})
+                .build();
+        AuthorizationRequest same = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{"user-read-private", "streaming"})
+                .build();
+
+        AuthorizationRequest other = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{"user-read-private"})
+                .build();
+
+        assertEquals(request, same);
+        assertEquals(request.hashCode(), same.hashCode());
+        assertEquals(request, reordered);
+        assertEquals(request.hashCode(), reordered.hashCode());
+        assertEquals(request.toUri(), reordered.toUri());
+        assertNotEquals(request, other);
+    }
+
+    @Test
+    public void shouldSetScopeSet() {
+        ScopeSet scopeSet = ScopeSet.parse("user-read-private streaming");
+
+        AuthorizationRequest fromScopeSet = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopeSet(scopeSet)
+                .build();
+
+        assertArrayEquals(new String[]{"streaming", "user-read-private"}, fromScopeSet.getScopes());
+        assertSame(scopeSet, fromScopeSet.getScopeSet());
+    }
+
+    @Test
+    public void shouldMarshallKnownScopesAsBits() {
+        AuthorizationRequest request = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{"user-read-private", "streaming", "user-read-email"})
+                .build();
+
+        Parcel parcel = Parcel.obtain();
+        request.writeToParcel(parcel, 0);
+        Parcel expected = Parcel.obtain();
+        expected.writeInt(0);
+        expected.writeString(clientId);
+        expected.writeString(responseType.toString());
+        expected.writeString(redirectUri);
+        expected.writeLong(0L);
+        expected.writeStringList(Collections.<String>emptyList());
+
+        assertEquals(expected.dataSize(), parcel.dataSize());
+        parcel.setDataPosition(0);
+        AuthorizationRequest requestFromParcel = AuthorizationRequest.CREATOR.createFromParcel(parcel);
+        assertEquals(request, requestFromParcel);
+        assertArrayEquals(new String[]{"streaming", "user-read-email", "user-read-private"},
+                requestFromParcel.getScopes());
+        parcel.recycle();
+        expected.recycle();
+    }
+
+    @Test
+    public void shouldMarshallNullAndEmptyScopesCorrectly() {
+        AuthorizationRequest withoutScopes = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .build();
+        AuthorizationRequest withEmptyScopes = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setScopes(new String[]{})
+                .build();
+
+        Parcel parcel = Parcel.obtain();
+        withoutScopes.writeToParcel(parcel, 0);
+        withEmptyScopes.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        assertNull(AuthorizationRequest.CREATOR.createFromParcel(parcel).getScopes());
+        assertArrayEquals(new String[]{}, AuthorizationRequest.CREATOR.createFromParcel(parcel).getScopes());
+        parcel.recycle();
+    }
+
     @Test
     public void shouldSetState() {
         String testState = "test_state";
@@ -365,6 +498,93 @@ public class AuthorizationRequestTest {
         assertNull(requestFromParcel.getPkceInformation());
     }
 
+    @Test
+    public void shouldMarshallAllFieldsCorrectly() {
+        AuthorizationRequest request = fullRequest();
+
+        Parcel parcel = Parcel.obtain();
+        request.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        assertEquals(request, AuthorizationRequest.CREATOR.createFromParcel(parcel));
+        assertEquals(parcel.dataSize(), parcel.dataPosition());
+        parcel.recycle();
+    }
+
+    @Test
+    public void shouldMarshallMinimalRequestAsHeaderAndRequiredStrings() {
+        AuthorizationRequest request = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .build();
+
+        Parcel parcel = Parcel.obtain();
+        request.writeToParcel(parcel, 0);
+        Parcel expected = Parcel.obtain();
+        expected.writeInt(0);
+        expected.writeString(clientId);
+        expected.writeString(responseType.toString());
+        expected.writeString(redirectUri);
+
+        assertEquals(expected.dataSize(), parcel.dataSize());
+        parcel.recycle();
+        expected.recycle();
+    }
+
+    @Test
+    public void shouldMarshallFewerBytesThanBundleEncoding() {
+        AuthorizationRequest request = fullRequest();
+
+        Parcel parcel = Parcel.obtain();
+        request.writeToParcel(parcel, 0);
+
+        // The previous layout: every field, scopes as a string array, PKCE as a Parcelable and
+        // custom parameters in a Bundle
+        Parcel previous = Parcel.obtain();
+        previous.writeString(request.getClientId());
+        previous.writeString(request.getResponseType());
+        previous.writeString(request.getRedirectUri());
+        previous.writeString(request.getState());
+        previous.writeStringArray(request.getScopes());
+        previous.writeByte((byte) 1);
+        previous.writeString(request.getCampaign());
+        previous.writeString(PKCEInformation.class.getName());
+        previous.writeString(request.getPkceInformation().getVerifier());
+        previous.writeString(request.getPkceInformation().getChallenge());
+        previous.writeString(request.getPkceInformation().getCodeChallengeMethod());
+        Bundle bundle = new Bundle();
+        for (Map.Entry<String, String> entry : request.getCustomParams().entrySet()) {
+            bundle.putString(entry.getKey(), entry.getValue());
+        }
+        previous.writeBundle(bundle);
+
+        assertTrue(parcel.dataSize() + " >= " + previous.dataSize(), parcel.dataSize() < previous.dataSize());
+        parcel.recycle();
+        previous.recycle();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectUnknownParcelVersion() {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeInt(0xff);
+        parcel.writeString(clientId);
+        parcel.writeString(responseType.toString());
+        parcel.writeString(redirectUri);
+        parcel.setDataPosition(0);
+
+        AuthorizationRequest.CREATOR.createFromParcel(parcel);
+    }
+
+    private AuthorizationRequest fullRequest() {
+        return new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setState("testState")
+                .setScopes(new String[]{"streaming", "user-read-private", "user-read-email", "custom-scope"})
+                .setShowDialog(true)
+                .setCampaign("campaign")
+                .setCustomParam("key_1", "value_1")
+                .setCustomParam("key_2", "value_2")
+                .setPkceInformation(PKCEInformation.sha256("test_verifier_1234567890", "test_challenge_abcdef"))
+                .build();
+    }
+
     @Test
     public void shouldIncludePkceParametersInUriWithAllFields() {
         String verifier = "test_verifier_1234567890";
@@ -388,4 +608,29 @@ public class AuthorizationRequestTest {
 
         assertEquals(expectedUri, authorizationRequest.toUri());
     }
+
+    @Test
+    public void shouldUseAccountsUriFromConfig() {
+        AuthorizationRequest request = new AuthorizationRequest.Builder(clientId, responseType, redirectUri)
+                .setState("testState")
+                .build();
+        Uri spotifyUri = request.toUri();
+
+        AuthorizationClient.setConfig(new AuthorizationConfig.Builder()
+                .setAccountsUri(Uri.parse("http://127.0.0.1:8089/authorize"))
+                .build());
+        Uri localUri = request.toUri();
+
+        assertTrue(localUri.toString(), localUri.toString().startsWith("http://127.0.0.1:8089/authorize?"));
+        assertEquals(spotifyUri.getEncodedQuery(), localUri.getEncodedQuery());
+        assertSame(localUri, request.toUri());
+
+        AuthorizationClient.setConfig(AuthorizationConfig.DEFAULT);
+        assertSame(spotifyUri, request.toUri());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAccountsUriOffTheDevice() {
+        new AuthorizationConfig.Builder().setAccountsUri(Uri.parse("https://accounts.example.com/authorize"));
+    }
 }
@@ -97,6 +97,28 @@ public class AuthorizationResponseTest {
         assertNull(response.getAccessToken());
     }
 
+    @Test
+    public void shouldNotMatchKeysThatStartWithKnownKey() {
+        String responseUrl = "testschema://callback/#state_foo=other&access_token=test_access_token&state=test_state&expires_in_ms=1";
+        AuthorizationResponse response = AuthorizationResponse.fromUri(Uri.parse(responseUrl));
+
+        assertEquals(AuthorizationResponse.Type.TOKEN, response.getType());
+        assertEquals("test_state", response.getState());
+        assertEquals("test_access_token", response.getAccessToken());
+        assertEquals(0, response.getExpiresIn());
+    }
+
+    @Test
+    public void shouldCreateFromErrorUrlWithCode() {
+        String responseUrl = "testschema://callback/?code=test_authorization_code&error=access_denied&state=test_state";
+        AuthorizationResponse response = AuthorizationResponse.fromUri(Uri.parse(responseUrl));
+
+        assertEquals(AuthorizationResponse.Type.ERROR, response.getType());
+        assertEquals("access_denied", response.getError());
+        assertEquals("test_state", response.getState());
+        assertNull(response.getCode());
+    }
+
     @Test
     public void shouldCreateFromNullUrl() {
         AuthorizationResponse response = AuthorizationResponse.fromUri(null);
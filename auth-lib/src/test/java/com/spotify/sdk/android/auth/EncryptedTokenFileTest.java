@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.ProviderException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class EncryptedTokenFileTest {
+
+    private static final byte[] DATA = "access_token".getBytes(StandardCharsets.UTF_8);
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("tokens").toFile();
+        file = new File(dir, "tokens");
+    }
+
+    @After
+    public void tearDown() {
+        for (File child : dir.listFiles()) {
+            child.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void shouldReturnNullWhenNothingWasWritten() throws Exception {
+        assertNull(new EncryptedTokenFile(file, new SoftwareCipher()).read());
+    }
+
+    @Test
+    public void shouldReadBackWhatWasWritten() throws Exception {
+        SoftwareCipher cipher = new SoftwareCipher();
+        new EncryptedTokenFile(file, cipher).write(DATA);
+
+        assertArrayEquals(DATA, new EncryptedTokenFile(file, cipher).read());
+    }
+
+    @Test
+    public void shouldNotWritePlaintext() throws Exception {
+        new EncryptedTokenFile(file, new SoftwareCipher()).write(DATA);
+
+        byte[] contents = Files.readAllBytes(file.toPath());
+        assertFalse(new String(contents, StandardCharsets.ISO_8859_1).contains("access_token"));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailWithAnotherKey() throws Exception {
+        new EncryptedTokenFile(file, new SoftwareCipher()).write(DATA);
+
+        new EncryptedTokenFile(file, new SoftwareCipher()).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldReportUncheckedEncryptFailureAsIOException() throws Exception {
+        new EncryptedTokenFile(file, new BrokenKeystoreCipher()).write(DATA);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldReportUncheckedDecryptFailureAsIOException() throws Exception {
+        new EncryptedTokenFile(file, new SoftwareCipher()).write(DATA);
+
+        new EncryptedTokenFile(file, new BrokenKeystoreCipher()).read();
+    }
+
+    @Test
+    public void shouldDeleteFile() throws Exception {
+        EncryptedTokenFile tokenFile = new EncryptedTokenFile(file, new SoftwareCipher());
+        tokenFile.write(DATA);
+
+        tokenFile.delete();
+
+        assertNull(tokenFile.read());
+    }
+
+    /**
+     * Fails like the Android Keystore does when it is locked or its key was invalidated.
+     */
+    static class BrokenKeystoreCipher implements TokenCipher {
+        @Override
+        public byte[] encrypt(byte[] plaintext) {
+            throw new ProviderException("Keystore operation failed");
+        }
+
+        @Override
+        public byte[] decrypt(byte[] ciphertext) {
+            throw new ProviderException("Keystore operation failed");
+        }
+    }
+
+    /**
+     * AES-GCM with an in-memory key, standing in for the Android Keystore.
+     */
+    private static class SoftwareCipher implements TokenCipher {
+        private static final int IV_LENGTH = 12;
+
+        private final SecretKey key;
+        private final SecureRandom random = new SecureRandom();
+
+        SoftwareCipher() throws GeneralSecurityException {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(128);
+            key = generator.generateKey();
+        }
+
+        @Override
+        public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+            byte[] result = Arrays.copyOf(iv, IV_LENGTH + ciphertext.length);
+            System.arraycopy(ciphertext, 0, result, IV_LENGTH, ciphertext.length);
+            return result;
+        }
+
+        @Override
+        public byte[] decrypt(byte[] ciphertext) throws GeneralSecurityException {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, ciphertext, 0, IV_LENGTH));
+            return cipher.doFinal(ciphertext, IV_LENGTH, ciphertext.length - IV_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.Test;
+
+import java.net.URLEncoder;
+
+import static org.junit.Assert.assertEquals;
+
+public class FormBodyTest {
+
+    @Test
+    public void shouldJoinPairs() {
+        String body = new FormBody()
+                .add("grant_type", "authorization_code")
+                .add("client_id", "abc123")
+                .toString();
+
+        assertEquals("grant_type=authorization_code&client_id=abc123", body);
+    }
+
+    @Test
+    public void shouldEncodeValuesLikeUrlEncoder() throws Exception {
+        String[] values = {
+                "", "plain-value_1.*", "with space", "a+b/c=d&e", "~tilde", "redirect://callback?x=1",
+                "ünïcödé", "🎵", "%41"
+        };
+        for (String value : values) {
+            assertEquals(value, "key=" + URLEncoder.encode(value, "UTF-8"),
+                    new FormBody().add("key", value).toString());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class HttpUrlConnectionTransportTest {
+
+    private static final TokenTransport.ResponseReader<String> BODY_READER =
+            (statusCode, body) -> statusCode + ":" + (body == null ? "" : readFully(body));
+
+    private LocalTokenServer mServer;
+    private HttpUrlConnectionTransport mTransport;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new LocalTokenServer();
+        mTransport = new HttpUrlConnectionTransport(mServer.getClientSocketFactory());
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void shouldPostFormBodyAndReadResponse() throws Exception {
+        mServer.setResponse(200, "{\"ok\":true}");
+
+        String result = mTransport.post(mServer.getTokenUrl(), bytes("a=1&b=2"), null, BODY_READER);
+
+        assertEquals("200:{\"ok\":true}", result);
+        assertEquals("a=1&b=2", mServer.getRequestBodies().get(0));
+    }
+
+    @Test
+    public void shouldReadErrorBody() throws Exception {
+        mServer.setResponse(400, "{\"error\":\"invalid_grant\"}");
+
+        String result = mTransport.post(mServer.getTokenUrl(), bytes("a=1"), null, BODY_READER);
+
+        assertEquals("400:{\"error\":\"invalid_grant\"}", result);
+    }
+
+    @Test
+    public void shouldReuseConnectionForConsecutiveRequests() throws Exception {
+        mTransport.post(mServer.getTokenUrl(), bytes("first"), null, BODY_READER);
+        mTransport.post(mServer.getTokenUrl(), bytes("second"), null, BODY_READER);
+        mServer.setResponse(400, "{\"error\":\"invalid_grant\"}");
+        mTransport.post(mServer.getTokenUrl(), bytes("third"), null, BODY_READER);
+
+        assertEquals(3, mServer.getClientPorts().size());
+        assertEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(1));
+        assertEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(2));
+    }
+
+    @Test
+    public void shouldReuseConnectionWhenReaderStopsEarly() throws Exception {
+        TokenTransport.ResponseReader<Integer> statusOnly = (statusCode, body) -> statusCode;
+
+        mTransport.post(mServer.getTokenUrl(), bytes("first"), null, statusOnly);
+        mTransport.post(mServer.getTokenUrl(), bytes("second"), null, statusOnly);
+
+        assertEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(1));
+    }
+
+    @Test
+    public void shouldNotReuseConnectionWhenReaderThrows() throws Exception {
+        TokenTransport.ResponseReader<String> failing = (statusCode, body) -> {
+            body.read();
+            throw new IllegalStateException("Malformed response");
+        };
+
+        try {
+            mTransport.post(mServer.getTokenUrl(), bytes("first"), null, failing);
+            fail("Expected the reader's exception");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        mTransport.post(mServer.getTokenUrl(), bytes("second"), null, BODY_READER);
+
+        assertNotEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(1));
+    }
+
+    @Test
+    public void shouldNotDrainOversizedResponse() throws Exception {
+        char[] large = new char[TokenResponseParser.MAX_BODY_BYTES * 2];
+        Arrays.fill(large, 'a');
+        mServer.setResponse(200, new String(large));
+        TokenTransport.ResponseReader<Integer> statusOnly = (statusCode, body) -> statusCode;
+
+        mTransport.post(mServer.getTokenUrl(), bytes("first"), null, statusOnly);
+        mServer.setResponse(200, "{}");
+        mTransport.post(mServer.getTokenUrl(), bytes("second"), null, BODY_READER);
+
+        assertNotEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(1));
+    }
+
+    @Test
+    public void shouldReuseConnectionOpenedByPreconnect() throws Exception {
+        mServer.setResponse(200, "{}");
+        mTransport.preconnect(mServer.getTokenUrl());
+        String result = mTransport.post(mServer.getTokenUrl(), bytes("a=1"), null, BODY_READER);
+
+        assertEquals("200:{}", result);
+        assertEquals(Arrays.asList("HEAD", "POST"), mServer.getRequestMethods());
+        assertEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(1));
+    }
+
+    @Test
+    public void shouldKeepConnectionWhenPreconnectGetsErrorStatus() throws Exception {
+        mServer.setResponse(405, "");
+        mTransport.preconnect(mServer.getTokenUrl());
+        mServer.setResponse(200, "{}");
+        mTransport.post(mServer.getTokenUrl(), bytes("a=1"), null, BODY_READER);
+
+        assertEquals(mServer.getClientPorts().get(0), mServer.getClientPorts().get(1));
+    }
+
+    @Test
+    public void shouldFailForUntrustedServer() {
+        HttpUrlConnectionTransport defaultTransport = new HttpUrlConnectionTransport();
+        try {
+            defaultTransport.post(mServer.getTokenUrl(), bytes("a=1"), null, BODY_READER);
+            fail("Expected the self-signed certificate to be rejected");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class IoExecutorTest {
+
+    @After
+    public void tearDown() {
+        AuthorizationClient.setConfig(AuthorizationConfig.DEFAULT);
+    }
+
+    @Test
+    public void shouldUseBoundedPoolWithIdleTimeoutByDefault() {
+        ThreadPoolExecutor pool = IoExecutor.INSTANCE.getDefault();
+
+        assertSame(pool, IoExecutor.INSTANCE.current());
+        assertEquals(2, pool.getMaximumPoolSize());
+        assertTrue(pool.allowsCoreThreadTimeOut());
+        assertTrue(pool.getKeepAliveTime(TimeUnit.SECONDS) > 0);
+    }
+
+    @Test
+    public void shouldRunTasksOnDaemonThreads() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean daemon = new AtomicBoolean();
+
+        IoExecutor.INSTANCE.execute(() -> {
+            daemon.set(Thread.currentThread().isDaemon());
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(daemon.get());
+    }
+
+    @Test
+    public void shouldNotQueueExchangesBehindBackgroundWork() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch exchanged = new CountDownLatch(1);
+        IoExecutor.INSTANCE.executeInBackground(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            IoExecutor.INSTANCE.execute(exchanged::countDown);
+
+            assertTrue(exchanged.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void shouldRunBackgroundWorkOnOneThread() {
+        ThreadPoolExecutor background = IoExecutor.INSTANCE.getBackground();
+
+        assertSame(background, IoExecutor.INSTANCE.currentBackground());
+        assertEquals(1, background.getMaximumPoolSize());
+        assertTrue(background.allowsCoreThreadTimeOut());
+    }
+
+    @Test
+    public void shouldUseExecutorFromConfig() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor executor = tasks::add;
+        AuthorizationClient.setConfig(new AuthorizationConfig.Builder().setExecutor(executor).build());
+
+        IoExecutor.INSTANCE.execute(() -> { });
+        IoExecutor.INSTANCE.executeInBackground(() -> { });
+
+        assertSame(executor, IoExecutor.INSTANCE.current());
+        assertSame(executor, IoExecutor.INSTANCE.currentBackground());
+        assertEquals(2, tasks.size());
+    }
+}
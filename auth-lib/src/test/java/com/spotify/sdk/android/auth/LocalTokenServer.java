@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.os.CancellationSignal;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * A local HTTPS stand-in for the accounts token endpoint, using the self-signed
+ * certificate in {@code token_server.p12}. It records the request bodies and the client
+ * port of every request, so tests can tell whether a connection was reused.
+ */
+public class LocalTokenServer implements AutoCloseable {
+
+    public static final String TOKEN_PATH = "/api/token";
+
+    private static final String KEYSTORE = "/token_server.p12";
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private final HttpsServer mServer;
+    private final SSLContext mClientSslContext;
+    private final List<String> mRequestBodies = new CopyOnWriteArrayList<>();
+    private final List<Integer> mClientPorts = new CopyOnWriteArrayList<>();
+    private final List<String> mRequestMethods = new CopyOnWriteArrayList<>();
+    private final Semaphore mRequestsReceived = new Semaphore(0);
+    private volatile long mResponseDelayMillis;
+    private volatile int mResponseCode = 200;
+    private volatile String mResponseBody = "{\"access_token\":\"test_access_token\","
+            + "\"token_type\":\"Bearer\",\"expires_in\":3600}";
+
+    public LocalTokenServer() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = LocalTokenServer.class.getResourceAsStream(KEYSTORE)) {
+            keyStore.load(in, PASSWORD);
+        }
+
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD);
+        SSLContext serverSslContext = SSLContext.getInstance("TLS");
+        serverSslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        Certificate certificate = keyStore.getCertificate(keyStore.aliases().nextElement());
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("token-server", certificate);
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        mClientSslContext = SSLContext.getInstance("TLS");
+        mClientSslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        mServer = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.setHttpsConfigurator(new HttpsConfigurator(serverSslContext));
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.createContext(TOKEN_PATH, exchange -> {
+            mClientPorts.add(exchange.getRemoteAddress().getPort());
+            mRequestMethods.add(exchange.getRequestMethod());
+            mRequestBodies.add(readFully(exchange.getRequestBody()));
+            mRequestsReceived.release();
+            if (mResponseDelayMillis > 0) {
+                try {
+                    Thread.sleep(mResponseDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] response = mResponseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(mResponseCode, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(mResponseCode, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        mServer.start();
+    }
+
+    public String getTokenUrl() {
+        return "https://127.0.0.1:" + mServer.getAddress().getPort() + TOKEN_PATH;
+    }
+
+    /**
+     * A socket factory that trusts this server's certificate.
+     */
+    public SSLSocketFactory getClientSocketFactory() {
+        return mClientSslContext.getSocketFactory();
+    }
+
+    public void setResponse(int responseCode, String responseBody) {
+        mResponseCode = responseCode;
+        mResponseBody = responseBody;
+    }
+
+    /**
+     * Makes the server wait before answering, to simulate a slow network.
+     */
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        mResponseDelayMillis = responseDelayMillis;
+    }
+
+    public List<String> getRequestBodies() {
+        return mRequestBodies;
+    }
+
+    public List<Integer> getClientPorts() {
+        return mClientPorts;
+    }
+
+    public List<String> getRequestMethods() {
+        return mRequestMethods;
+    }
+
+    /**
+     * Waits until the server has read the body of one more request than was waited for before.
+     *
+     * @return false if no request arrived in time
+     */
+    public boolean awaitRequest(long timeout, TimeUnit unit) throws InterruptedException {
+        return mRequestsReceived.tryAcquire(timeout, unit);
+    }
+
+    /**
+     * A transport that sends every request to this server instead of the URL it is given.
+     */
+    public TokenTransport createTransport() {
+        return new LocalTransport();
+    }
+
+    @Override
+    public void close() {
+        mServer.stop(0);
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private class LocalTransport implements TokenTransport, TokenTransport.Preconnectable {
+        private final HttpUrlConnectionTransport mTransport =
+                new HttpUrlConnectionTransport(getClientSocketFactory());
+
+        @Override
+        public <T> T post(String url, byte[] formBody, CancellationSignal cancellationSignal,
+                ResponseReader<T> reader) throws IOException {
+            return mTransport.post(getTokenUrl(), formBody, cancellationSignal, reader);
+        }
+
+        @Override
+        public void preconnect(String url) throws IOException {
+            mTransport.preconnect(getTokenUrl());
+        }
+    }
+}
@@ -22,9 +22,13 @@
 package com.spotify.sdk.android.auth;
 
 import android.app.Activity;
+import android.content.ComponentName;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Looper;
 
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
@@ -32,8 +36,12 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.android.controller.ActivityController;
 import org.robolectric.shadows.ShadowActivity;
 
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.robolectric.Robolectric.buildActivity;
 import static org.robolectric.Shadows.shadowOf;
@@ -41,6 +49,14 @@ import static org.robolectric.Shadows.shadowOf;
 @RunWith(RobolectricTestRunner.class)
 public class LoginActivityTest {
 
+    private final TokenTransport defaultTransport = LoginActivity.getTokenExchangeTransport();
+
+    @After
+    public void tearDown() {
+        AuthorizationClient.setConfig(AuthorizationConfig.DEFAULT);
+        LoginActivity.setTokenExchangeTransport(defaultTransport);
+    }
+
     @Test
     public void shouldFinishLoginActivityIfNoAuthRequest() {
         Activity context = buildActivity(Activity.class).create().get();
@@ -52,4 +68,40 @@ public class LoginActivityTest {
         assertEquals(Activity.RESULT_CANCELED, shadowOf(activity).getResultCode());
     }
 
+    @Test
+    public void shouldStorePkceTokenUnderGrantedScopes() throws Exception {
+        final String clientId = "granted_scopes_client_id";
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponse(200, "{\"access_token\":\"granted_access_token\",\"token_type\":\"Bearer\","
+                    + "\"expires_in\":3600,\"scope\":\"user-read-email\"}");
+            LoginActivity.setTokenExchangeTransport(server.createTransport());
+            AuthorizationClient.setConfig(new AuthorizationConfig.Builder()
+                    .setStoreTokens(true)
+                    .setExecutor(Runnable::run)
+                    .build());
+
+            AuthorizationRequest request = new AuthorizationRequest.Builder(
+                    clientId, AuthorizationResponse.Type.TOKEN, "test://redirect")
+                    .setScopes(new String[]{"user-read-email", "playlist-read-private"})
+                    .setPkceInformation(PKCEInformation.sha256("test_code_verifier", "test_code_challenge"))
+                    .build();
+            Activity context = buildActivity(Activity.class).create().get();
+            ActivityController<LoginActivity> controller =
+                    buildActivity(LoginActivity.class, LoginActivity.getAuthIntent(context, request));
+            shadowOf(controller.get()).setCallingActivity(new ComponentName(context, Activity.class));
+            // Restore the activity so it waits for the redirect instead of starting a new login
+            controller.create(new Bundle());
+
+            controller.newIntent(new Intent().setData(Uri.parse("test://redirect?code=test_code")));
+            shadowOf(Looper.getMainLooper()).idle();
+
+            TokenStore store = TokenStore.getInstance(context);
+            assertNull(store.getValidToken(clientId, new String[]{"user-read-email", "playlist-read-private"}));
+            StoredToken token = store.getValidToken(clientId, new String[]{"user-read-email"});
+            assertNotNull(token);
+            assertEquals("granted_access_token", token.getAccessToken());
+            assertEquals("Bearer", token.getTokenType());
+            assertEquals(Collections.singletonList("user-read-email"), token.getScopes());
+        }
+    }
 }
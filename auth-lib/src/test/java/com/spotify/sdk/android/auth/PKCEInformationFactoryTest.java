@@ -25,6 +25,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import android.util.Base64;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 import static org.junit.Assert.assertEquals;
@@ -70,5 +74,25 @@ public class PKCEInformationFactoryTest {
         assertTrue(!challenge.contains("+"));
         assertTrue(!challenge.contains("/"));
     }
-}
 
+    @Test
+    public void shouldGenerateCodeVerifierFromAllowedCharset() throws NoSuchAlgorithmException {
+        for (int i = 0; i < 20; i++) {
+            PKCEInformation pkceInfo = PKCEInformationFactory.create();
+
+            assertTrue(pkceInfo.getVerifier().matches("^[A-Za-z0-9._~-]{128}$"));
+        }
+    }
+
+    @Test
+    public void shouldGenerateChallengeFromVerifierHash() throws NoSuchAlgorithmException {
+        PKCEInformation pkceInfo = PKCEInformationFactory.create();
+
+        byte[] hash = MessageDigest.getInstance("SHA-256")
+                .digest(pkceInfo.getVerifier().getBytes(StandardCharsets.US_ASCII));
+        String expectedChallenge = Base64.encodeToString(
+                hash, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
+
+        assertEquals(expectedChallenge, pkceInfo.getChallenge());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class PKCEInformationTest {
+
+    @Test
+    public void shouldMarshallCorrectly() {
+        PKCEInformation pkceInformation = PKCEInformation.sha256("test_verifier", "test_challenge");
+
+        Parcel parcel = Parcel.obtain();
+        pkceInformation.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        assertEquals(pkceInformation, PKCEInformation.CREATOR.createFromParcel(parcel));
+        assertEquals(parcel.dataSize(), parcel.dataPosition());
+        parcel.recycle();
+    }
+
+    @Test
+    public void shouldUseParcelizeLayout() {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeString("test_verifier");
+        parcel.writeString("test_challenge");
+        parcel.writeString("S256");
+        parcel.setDataPosition(0);
+
+        assertEquals(PKCEInformation.sha256("test_verifier", "test_challenge"),
+                PKCEInformation.CREATOR.createFromParcel(parcel));
+        parcel.recycle();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class PKCEPoolTest {
+
+    private static final long MAX_AGE_MS = 1000;
+
+    private final long[] mNow = {0};
+    private final List<Runnable> mPendingTasks = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        AuthorizationClient.setConfig(AuthorizationConfig.DEFAULT);
+    }
+
+    private PKCEPool createPool(int capacity) {
+        return new PKCEPool(capacity, MAX_AGE_MS, mPendingTasks::add, () -> mNow[0]);
+    }
+
+    private void runPendingTasks() {
+        List<Runnable> tasks = new ArrayList<>(mPendingTasks);
+        mPendingTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void shouldCreatePairWhenPoolIsEmpty() throws Exception {
+        PKCEPool pool = createPool(2);
+
+        PKCEInformation pkceInformation = pool.take();
+
+        assertNotNull(pkceInformation);
+        assertEquals(1, mPendingTasks.size());
+    }
+
+    @Test
+    public void shouldRefillInBackground() throws Exception {
+        PKCEPool pool = createPool(2);
+
+        pool.prefill();
+        assertEquals(0, pool.size());
+
+        runPendingTasks();
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void shouldHandOutEachPairOnlyOnce() throws Exception {
+        PKCEPool pool = createPool(2);
+        pool.prefill();
+        runPendingTasks();
+
+        PKCEInformation first = pool.take();
+        PKCEInformation second = pool.take();
+
+        assertNotEquals(first.getVerifier(), second.getVerifier());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void shouldScheduleSingleRefillAtATime() throws Exception {
+        PKCEPool pool = createPool(2);
+
+        pool.prefill();
+        pool.prefill();
+        pool.take();
+
+        assertEquals(1, mPendingTasks.size());
+    }
+
+    @Test
+    public void shouldDiscardExpiredPairs() throws Exception {
+        PKCEPool pool = createPool(1);
+        pool.prefill();
+        runPendingTasks();
+        assertEquals(1, pool.size());
+
+        mNow[0] = MAX_AGE_MS + 1;
+        pool.take();
+
+        assertEquals(0, pool.size());
+        runPendingTasks();
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void shouldDropExpiredPairsOnRefill() throws Exception {
+        PKCEPool pool = createPool(2);
+        pool.prefill();
+        runPendingTasks();
+        PKCEInformation stale = pool.take();
+        runPendingTasks();
+
+        mNow[0] = MAX_AGE_MS + 1;
+        pool.prefill();
+        runPendingTasks();
+
+        assertEquals(2, pool.size());
+        assertNotEquals(stale.getVerifier(), pool.take().getVerifier());
+    }
+
+    @Test
+    public void sharedPoolShouldUseMaxAgeFromConfig() {
+        PKCEPool defaultPool = PKCEPool.getShared();
+        assertEquals(AuthorizationConfig.DEFAULT.getPkceMaxAgeMillis(), defaultPool.getMaxAgeMillis());
+        assertSame(defaultPool, PKCEPool.getShared());
+
+        AuthorizationClient.setConfig(new AuthorizationConfig.Builder().setPkceMaxAge(30_000L).build());
+
+        PKCEPool configuredPool = PKCEPool.getShared();
+        assertNotSame(defaultPool, configuredPool);
+        assertEquals(30_000L, configuredPool.getMaxAgeMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void configShouldRejectNonPositiveMaxAge() {
+        new AuthorizationConfig.Builder().setPkceMaxAge(0L);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RedirectUriParametersTest {
+
+    private static final String[] KEYS = {
+            AccountsQueryParameters.ERROR,
+            AccountsQueryParameters.STATE,
+            AccountsQueryParameters.CODE,
+            AccountsQueryParameters.ACCESS_TOKEN,
+            AccountsQueryParameters.EXPIRES_IN
+    };
+
+    private static final String[] PIECES = {
+            "error", "state", "code", "access_token", "expires_in", "state_foo", "xstate", "code_",
+            "=", "=", "&", "&", "%", "%2", "%41", "%E2%82%AC", "%zz", "+", "a", "1", "-", "~"
+    };
+
+    @Test
+    public void shouldMatchKeysExactly() {
+        RedirectUriParameters parameters = RedirectUriParameters.fromQuery("state_foo=1&xstate=2&state=3");
+
+        assertEquals("3", parameters.get(RedirectUriParameters.STATE));
+    }
+
+    @Test
+    public void shouldUseFirstOccurrence() {
+        RedirectUriParameters parameters = RedirectUriParameters.fromQuery("code=first&code=second");
+
+        assertEquals("first", parameters.get(RedirectUriParameters.CODE));
+    }
+
+    @Test
+    public void shouldKeepSeparatorsInValues() {
+        RedirectUriParameters parameters = RedirectUriParameters.fromFragment("state=a=b==&access_token=token");
+
+        assertEquals("a=b==", parameters.get(RedirectUriParameters.STATE));
+        assertEquals("token", parameters.get(RedirectUriParameters.ACCESS_TOKEN));
+    }
+
+    @Test
+    public void shouldReturnEmptyValueForKeyWithoutValue() {
+        RedirectUriParameters parameters = RedirectUriParameters.fromQuery("error&state=");
+
+        assertTrue(parameters.contains(RedirectUriParameters.ERROR));
+        assertEquals("", parameters.get(RedirectUriParameters.ERROR));
+        assertEquals("", parameters.get(RedirectUriParameters.STATE));
+        assertFalse(parameters.contains(RedirectUriParameters.CODE));
+        assertNull(parameters.get(RedirectUriParameters.CODE));
+    }
+
+    @Test
+    public void shouldDecodePlusOnlyInQuery() {
+        assertEquals("a b+c", RedirectUriParameters.fromQuery("state=a+b%2Bc").get(RedirectUriParameters.STATE));
+        assertEquals("a+b+c", RedirectUriParameters.fromFragment("state=a+b%2Bc").get(RedirectUriParameters.STATE));
+    }
+
+    @Test
+    public void shouldReadQueryLikeGetQueryParameter() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String query = randomParameters(random);
+            Uri uri = Uri.parse("testschema://callback/?" + query);
+            RedirectUriParameters parameters = RedirectUriParameters.fromQuery(query);
+
+            for (int key = 0; key < KEYS.length; key++) {
+                assertEquals(query, uri.getQueryParameter(KEYS[key]), parameters.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadFragmentLikeSplittingOnSeparators() {
+        Random random = new Random(1138);
+        for (int i = 0; i < 2000; i++) {
+            String fragment = randomParameters(random);
+            RedirectUriParameters parameters = RedirectUriParameters.fromFragment(fragment);
+
+            for (int key = 0; key < KEYS.length; key++) {
+                assertEquals(fragment, splitFragment(fragment, KEYS[key]), parameters.get(key));
+            }
+        }
+    }
+
+    private static String randomParameters(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int pieces = random.nextInt(12);
+        for (int i = 0; i < pieces; i++) {
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String splitFragment(String fragment, String key) {
+        for (String part : fragment.split("&", -1)) {
+            int separator = part.indexOf('=');
+            String partKey = separator == -1 ? part : part.substring(0, separator);
+            if (partKey.equals(key)) {
+                return separator == -1 ? "" : Uri.decode(part.substring(separator + 1));
+            }
+        }
+        return null;
+    }
+}
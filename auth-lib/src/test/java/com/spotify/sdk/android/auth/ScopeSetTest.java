@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ScopeSetTest {
+
+    @Test
+    public void shouldStoreKnownScopesAsBits() {
+        ScopeSet scopes = ScopeSet.of(new String[]{"streaming", "user-read-private"});
+
+        assertEquals(2, Long.bitCount(scopes.bits));
+        assertTrue(scopes.overflow.isEmpty());
+    }
+
+    @Test
+    public void shouldKeepUnknownScopesInSortedOverflow() {
+        ScopeSet scopes = ScopeSet.of(new String[]{"z-scope", "streaming", "a-scope", "z-scope"});
+
+        assertEquals(Arrays.asList("a-scope", "z-scope"), scopes.overflow);
+        assertEquals(Arrays.asList("streaming", "a-scope", "z-scope"), scopes.toList());
+    }
+
+    @Test
+    public void shouldIgnoreOrderWhitespaceAndDuplicates() {
+        ScopeSet first = ScopeSet.of(new String[]{"streaming", "user-read-private", "custom"});
+        ScopeSet second = ScopeSet.of(new String[]{" custom", "user-read-private", "streaming", "", "streaming"});
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void shouldReturnEmptySetForNoScopes() {
+        assertSame(ScopeSet.EMPTY, ScopeSet.of((String[]) null));
+        assertSame(ScopeSet.EMPTY, ScopeSet.of(new String[]{" "}));
+        assertSame(ScopeSet.EMPTY, ScopeSet.parse(""));
+        assertTrue(ScopeSet.EMPTY.isEmpty());
+    }
+
+    @Test
+    public void shouldCheckSuperset() {
+        ScopeSet broad = ScopeSet.parse("streaming user-read-private b-custom d-custom");
+
+        assertTrue(broad.containsAll(ScopeSet.parse("streaming")));
+        assertTrue(broad.containsAll(ScopeSet.parse("d-custom user-read-private")));
+        assertTrue(broad.containsAll(broad));
+        assertTrue(broad.containsAll(ScopeSet.EMPTY));
+        assertFalse(broad.containsAll(ScopeSet.parse("streaming user-read-email")));
+        assertFalse(broad.containsAll(ScopeSet.parse("c-custom")));
+        assertFalse(broad.containsAll(ScopeSet.parse("e-custom")));
+        assertFalse(ScopeSet.parse("streaming").containsAll(broad));
+    }
+
+    @Test
+    public void shouldRoundTripThroughString() {
+        ScopeSet scopes = ScopeSet.of(new String[]{"user-top-read", "streaming", "custom"});
+
+        assertEquals("streaming user-top-read custom", scopes.toString());
+        assertEquals(scopes, ScopeSet.parse(scopes.toString()));
+    }
+
+    @Test
+    public void shouldCacheEncodedForm() {
+        ScopeSet scopes = ScopeSet.of(new String[]{"streaming", "custom"});
+
+        assertSame(scopes.toString(), scopes.toString());
+        assertSame(scopes.toList(), scopes.toList());
+    }
+
+    @Test
+    public void shouldInternSetsOfKnownScopes() {
+        ScopeSet first = ScopeSet.of(new String[]{"streaming", "user-read-private"});
+        ScopeSet second = ScopeSet.parse("user-read-private streaming");
+
+        assertSame(first, second);
+        assertNotSame(ScopeSet.parse("streaming custom"), ScopeSet.parse("streaming custom"));
+    }
+
+    @Test
+    public void shouldCheckSingleScope() {
+        ScopeSet scopes = ScopeSet.parse("streaming custom");
+
+        assertTrue(scopes.contains("streaming"));
+        assertTrue(scopes.contains("custom"));
+        assertFalse(scopes.contains("user-read-private"));
+        assertFalse(scopes.contains("other"));
+        assertEquals(2, scopes.getSize());
+    }
+
+    @Test
+    public void shouldRoundTripThroughParcel() {
+        ScopeSet scopes = ScopeSet.parse("user-read-private streaming b-custom a-custom");
+
+        Parcel parcel = Parcel.obtain();
+        scopes.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        ScopeSet fromParcel = ScopeSet.CREATOR.createFromParcel(parcel);
+
+        assertEquals(scopes, fromParcel);
+        assertEquals(scopes.toString(), fromParcel.toString());
+        parcel.recycle();
+    }
+
+    @Test
+    public void shouldParcelKnownScopesAsSingleLong() {
+        Parcel parcel = Parcel.obtain();
+        ScopeSet.parse("streaming user-read-private").writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        assertEquals(ScopeSet.parse("streaming user-read-private").bits, parcel.readLong());
+        assertEquals(0, parcel.readInt());
+        parcel.setDataPosition(0);
+        assertSame(ScopeSet.parse("streaming user-read-private"), ScopeSet.CREATOR.createFromParcel(parcel));
+        parcel.recycle();
+    }
+
+    @Test
+    public void shouldDistinguishDifferentSets() {
+        assertNotEquals(ScopeSet.parse("streaming"), ScopeSet.parse("user-read-private"));
+        assertNotEquals(ScopeSet.parse("a-custom"), ScopeSet.parse("b-custom"));
+    }
+
+    @Test
+    public void shouldFitKnownScopesInOneLong() {
+        assertTrue(ScopeSet.KNOWN_SCOPES.length <= 64);
+        assertEquals(ScopeSet.KNOWN_SCOPES.length,
+                Long.bitCount(ScopeSet.of(Arrays.asList(ScopeSet.KNOWN_SCOPES)).bits));
+        assertEquals(Collections.emptyList(), ScopeSet.of(Arrays.asList(ScopeSet.KNOWN_SCOPES)).overflow);
+    }
+}
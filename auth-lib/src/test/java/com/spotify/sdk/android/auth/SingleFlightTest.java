@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SingleFlightTest {
+
+    // Released once per caller that joins a run in progress, and once per run that starts
+    private final Semaphore joined = new Semaphore(0);
+    private final Semaphore started = new Semaphore(0);
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(joined::release);
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private String blockingWork(CancellationSignal signal) {
+        executions.incrementAndGet();
+        started.release();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return "result";
+    }
+
+    private Thread startCaller(CancellationSignal signal, List<Object> results) {
+        Thread thread = new Thread(() -> {
+            Object result;
+            try {
+                result = singleFlight.execute("key", signal, this::blockingWork);
+            } catch (RuntimeException e) {
+                result = e;
+            }
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void awaitStarted() throws InterruptedException {
+        assertTrue("Work didn't start", started.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitJoined(int callers) throws InterruptedException {
+        assertTrue("Callers didn't join", joined.tryAcquire(callers, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldShareOneExecutionBetweenConcurrentCallers() throws Exception {
+        List<Object> results = new ArrayList<>();
+        List<Thread> callers = new ArrayList<>();
+        callers.add(startCaller(null, results));
+        awaitStarted();
+        for (int i = 0; i < 3; i++) {
+            callers.add(startCaller(null, results));
+        }
+        awaitJoined(3);
+
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join(5000);
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(4, results.size());
+        for (Object result : results) {
+            assertEquals("result", result);
+        }
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void shouldRunAgainAfterCompletion() {
+        release.countDown();
+
+        singleFlight.execute("key", null, this::blockingWork);
+        singleFlight.execute("key", null, this::blockingWork);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void shouldShareException() throws Exception {
+        AtomicReference<Object> followerResult = new AtomicReference<>();
+        Thread leader = new Thread(() -> {
+            try {
+                singleFlight.execute("key", null, signal -> {
+                    blockingWork(signal);
+                    throw new IllegalStateException("failed");
+                });
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+        });
+        leader.start();
+        awaitStarted();
+        Thread follower = new Thread(() -> {
+            try {
+                followerResult.set(singleFlight.execute("key", null, this::blockingWork));
+            } catch (IllegalStateException e) {
+                followerResult.set(e);
+            }
+        });
+        follower.start();
+        awaitJoined(1);
+
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertTrue(followerResult.get() instanceof IllegalStateException);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void shouldKeepWorkRunningWhenOneCallerCancels() throws Exception {
+        List<Object> results = new ArrayList<>();
+        AtomicReference<CancellationSignal> workSignal = new AtomicReference<>();
+        Thread leader = new Thread(() -> {
+            String result = singleFlight.execute("key", null, signal -> {
+                workSignal.set(signal);
+                return blockingWork(signal);
+            });
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+        leader.start();
+        awaitStarted();
+        CancellationSignal followerSignal = new CancellationSignal();
+        Thread follower = startCaller(followerSignal, results);
+        awaitJoined(1);
+
+        followerSignal.cancel();
+        follower.join(5000);
+
+        assertFalse(follower.isAlive());
+        assertFalse(workSignal.get().isCanceled());
+
+        release.countDown();
+        leader.join(5000);
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0) instanceof OperationCanceledException);
+        assertEquals("result", results.get(1));
+    }
+
+    @Test
+    public void shouldCancelWorkWhenAllCallersCancel() throws Exception {
+        List<Object> results = new ArrayList<>();
+        AtomicReference<CancellationSignal> workSignal = new AtomicReference<>();
+        CancellationSignal leaderSignal = new CancellationSignal();
+        Thread leader = new Thread(() -> {
+            try {
+                singleFlight.execute("key", leaderSignal, signal -> {
+                    workSignal.set(signal);
+                    return blockingWork(signal);
+                });
+            } catch (OperationCanceledException e) {
+                synchronized (results) {
+                    results.add(e);
+                }
+            }
+        });
+        leader.start();
+        awaitStarted();
+        CancellationSignal followerSignal = new CancellationSignal();
+        Thread follower = startCaller(followerSignal, results);
+        awaitJoined(1);
+
+        followerSignal.cancel();
+        assertFalse(workSignal.get().isCanceled());
+        leaderSignal.cancel();
+
+        assertTrue(workSignal.get().isCanceled());
+        assertEquals(0, singleFlight.size());
+
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+        assertEquals(2, results.size());
+    }
+}
@@ -21,12 +21,25 @@
 
 package com.spotify.sdk.android.auth;
 
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -137,4 +150,174 @@ public class TokenExchangeRequestTest {
                 .setRedirectUri(TEST_REDIRECT_URI)
                 .build();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldExchangeCodeThroughTransport() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponse(200, "{\"access_token\":\"test_access_token\",\"token_type\":\"Bearer\","
+                    + "\"expires_in\":3600,\"refresh_token\":\"test_refresh_token\"}");
+
+            final TokenExchangeResponse response = new TokenExchangeRequest.Builder()
+                    .setClientId(TEST_CLIENT_ID)
+                    .setCode(TEST_CODE)
+                    .setRedirectUri(TEST_REDIRECT_URI)
+                    .setCodeVerifier(TEST_CODE_VERIFIER)
+                    .setTransport(localTransport(server))
+                    .build()
+                    .execute();
+
+            assertTrue(response.isSuccess());
+            assertEquals("test_access_token", response.getAccessToken());
+            assertEquals(3600, response.getExpiresIn());
+            assertEquals("test_refresh_token", response.getRefreshToken());
+            assertEquals("grant_type=authorization_code&client_id=test_client_id"
+                            + "&code=test_authorization_code&redirect_uri=redirect%3A%2F%2Furi"
+                            + "&code_verifier=test_code_verifier_1234567890",
+                    server.getRequestBodies().get(0));
+        }
+    }
+
+    @Test
+    public void shouldShareConnectionBetweenExchanges() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            final TokenTransport transport = localTransport(server);
+            for (int i = 0; i < 2; i++) {
+                new TokenExchangeRequest(TEST_CLIENT_ID, TEST_CODE, TEST_REDIRECT_URI, TEST_CODE_VERIFIER, transport)
+                        .execute();
+            }
+
+            assertEquals(server.getClientPorts().get(0), server.getClientPorts().get(1));
+        }
+    }
+
+    @Test
+    public void shouldReturnNetworkErrorWhenTransportFails() {
+        final TokenTransport failingTransport = new TokenTransport() {
+            @Override
+            public <T> T post(String url, byte[] formBody, CancellationSignal cancellationSignal,
+                    ResponseReader<T> reader) throws IOException {
+                throw new IOException("connection refused");
+            }
+        };
+
+        final TokenExchangeResponse response = new TokenExchangeRequest(
+                TEST_CLIENT_ID, TEST_CODE, TEST_REDIRECT_URI, TEST_CODE_VERIFIER, failingTransport).execute();
+
+        assertFalse(response.isSuccess());
+        assertEquals("network_error", response.getError());
+        assertEquals("Network error: connection refused", response.getErrorDescription());
+    }
+
+    @Test
+    public void shouldReuseConnectionOpenedByPreconnect() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            final TokenTransport transport = localTransport(server);
+
+            assertTrue(TokenExchangeRequest.preconnect(transport));
+            final TokenExchangeResponse response = new TokenExchangeRequest(
+                    TEST_CLIENT_ID, TEST_CODE, TEST_REDIRECT_URI, TEST_CODE_VERIFIER, transport).execute();
+
+            assertTrue(response.isSuccess());
+            assertEquals(Arrays.asList("HEAD", "POST"), server.getRequestMethods());
+            assertEquals(server.getClientPorts().get(0), server.getClientPorts().get(1));
+        }
+    }
+
+    @Test
+    public void shouldNotPreconnectWithPlainTransport() {
+        final TokenTransport plainTransport = new TokenTransport() {
+            @Override
+            public <T> T post(String url, byte[] formBody, CancellationSignal cancellationSignal,
+                    ResponseReader<T> reader) throws IOException {
+                throw new IOException("not expected");
+            }
+        };
+
+        assertFalse(TokenExchangeRequest.preconnect(plainTransport));
+    }
+
+    @Test
+    public void shouldReturnFalseWhenPreconnectFails() throws Exception {
+        final LocalTokenServer server = new LocalTokenServer();
+        final TokenTransport transport = localTransport(server);
+        server.close();
+
+        assertFalse(TokenExchangeRequest.preconnect(transport));
+    }
+
+    @Test
+    public void shouldRejectOversizedResponse() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            final char[] padding = new char[TokenResponseParser.MAX_BODY_BYTES];
+            Arrays.fill(padding, ' ');
+            server.setResponse(200, "{\"access_token\":\"token\"}" + new String(padding));
+
+            final TokenExchangeResponse response = new TokenExchangeRequest(TEST_CLIENT_ID, TEST_CODE,
+                    TEST_REDIRECT_URI, TEST_CODE_VERIFIER, localTransport(server)).execute();
+
+            assertFalse(response.isSuccess());
+            assertEquals("invalid_response", response.getError());
+        }
+    }
+
+    @Test
+    public void shouldDeliverAsyncResponseToCallback() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            final AtomicReference<TokenExchangeResponse> result = new AtomicReference<>();
+
+            new TokenExchangeRequest(TEST_CLIENT_ID, TEST_CODE, TEST_REDIRECT_URI, TEST_CODE_VERIFIER,
+                    localTransport(server)).executeAsync(Runnable::run, result::set);
+
+            assertNotNull(result.get());
+            assertTrue(result.get().isSuccess());
+            assertEquals("test_access_token", result.get().getAccessToken());
+        }
+    }
+
+    @Test
+    public void shouldNotSendRequestCancelledBeforeItRuns() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            final List<Runnable> tasks = new ArrayList<>();
+            final AtomicReference<TokenExchangeResponse> result = new AtomicReference<>();
+
+            final CancellationSignal signal = new TokenExchangeRequest(TEST_CLIENT_ID, TEST_CODE,
+                    TEST_REDIRECT_URI, TEST_CODE_VERIFIER, localTransport(server)).executeAsync(tasks::add, result::set);
+            signal.cancel();
+            tasks.get(0).run();
+
+            assertNull(result.get());
+            assertTrue(server.getRequestBodies().isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldAbortInFlightRequestWhenCancelled() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponseDelayMillis(5000);
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            final AtomicReference<TokenExchangeResponse> result = new AtomicReference<>();
+
+            final CancellationSignal signal = new TokenExchangeRequest(TEST_CLIENT_ID, TEST_CODE,
+                    TEST_REDIRECT_URI, TEST_CODE_VERIFIER, localTransport(server)).executeAsync(executor, result::set);
+            assertTrue(server.awaitRequest(5, TimeUnit.SECONDS));
+            signal.cancel();
+            executor.shutdown();
+
+            // The worker is released well before the server would have answered
+            assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+            assertNull(result.get());
+        }
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void shouldThrowWhenExecutedWithCancelledSignal() {
+        final CancellationSignal signal = new CancellationSignal();
+        signal.cancel();
+
+        new TokenExchangeRequest(TEST_CLIENT_ID, TEST_CODE, TEST_REDIRECT_URI, TEST_CODE_VERIFIER).execute(signal);
+    }
+
+    private static TokenTransport localTransport(LocalTokenServer server) {
+        return server.createTransport();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TokenRefreshRequestTest {
+
+    private static final String TEST_CLIENT_ID = "test_client_id";
+    private static final String TEST_REFRESH_TOKEN = "test_refresh_token";
+
+    @Test
+    public void shouldCreateRequestUsingBuilder() {
+        final TokenRefreshRequest request = new TokenRefreshRequest.Builder()
+                .setClientId(TEST_CLIENT_ID)
+                .setRefreshToken(TEST_REFRESH_TOKEN)
+                .build();
+
+        assertNotNull(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWithEmptyClientId() {
+        new TokenRefreshRequest("", TEST_REFRESH_TOKEN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWithEmptyRefreshToken() {
+        new TokenRefreshRequest(TEST_CLIENT_ID, "");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenBuilderMissingRefreshToken() {
+        new TokenRefreshRequest.Builder()
+                .setClientId(TEST_CLIENT_ID)
+                .build();
+    }
+
+    @Test
+    public void shouldSendRefreshTokenGrant() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponse(200, "{\"access_token\":\"new_access_token\",\"token_type\":\"Bearer\","
+                    + "\"expires_in\":3600,\"refresh_token\":\"new_refresh_token\"}");
+
+            final TokenExchangeResponse response = new TokenRefreshRequest.Builder()
+                    .setClientId(TEST_CLIENT_ID)
+                    .setRefreshToken("refresh/token+1")
+                    .setTransport(server.createTransport())
+                    .build()
+                    .execute();
+
+            assertTrue(response.isSuccess());
+            assertEquals("new_access_token", response.getAccessToken());
+            assertEquals("new_refresh_token", response.getRefreshToken());
+            assertEquals("grant_type=refresh_token&refresh_token=refresh%2Ftoken%2B1&client_id=test_client_id",
+                    server.getRequestBodies().get(0));
+        }
+    }
+
+    @Test
+    public void shouldKeepRefreshTokenWhenResponseHasNone() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponse(200, "{\"access_token\":\"new_access_token\",\"expires_in\":3600}");
+
+            final TokenExchangeResponse response = new TokenRefreshRequest(
+                    TEST_CLIENT_ID, TEST_REFRESH_TOKEN, server.createTransport()).execute();
+
+            assertTrue(response.isSuccess());
+            assertEquals(TEST_REFRESH_TOKEN, response.getRefreshToken());
+        }
+    }
+
+    @Test
+    public void shouldReturnErrorResponse() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponse(400, "{\"error\":\"invalid_grant\",\"error_description\":\"Refresh token revoked\"}");
+
+            final TokenExchangeResponse response = new TokenRefreshRequest(
+                    TEST_CLIENT_ID, TEST_REFRESH_TOKEN, server.createTransport()).execute();
+
+            assertFalse(response.isSuccess());
+            assertEquals("invalid_grant", response.getError());
+            assertEquals("Refresh token revoked", response.getErrorDescription());
+        }
+    }
+
+    @Test
+    public void shouldReuseConnectionOfPreviousExchange() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            final TokenTransport transport = server.createTransport();
+
+            new TokenExchangeRequest("client", "code", "redirect://uri", "verifier", transport).execute();
+            new TokenRefreshRequest(TEST_CLIENT_ID, TEST_REFRESH_TOKEN, transport).execute();
+
+            assertEquals(server.getClientPorts().get(0), server.getClientPorts().get(1));
+        }
+    }
+
+    @Test
+    public void shouldSendConcurrentIdenticalRefreshesOnce() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponseDelayMillis(500);
+            final TokenTransport transport = server.createTransport();
+            final List<TokenExchangeResponse> responses = new CopyOnWriteArrayList<>();
+            final List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread thread = new Thread(() -> responses.add(
+                        new TokenRefreshRequest(TEST_CLIENT_ID, TEST_REFRESH_TOKEN, transport).execute()));
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join(5000);
+            }
+
+            assertEquals(1, server.getRequestBodies().size());
+            assertEquals(4, responses.size());
+            for (TokenExchangeResponse response : responses) {
+                assertTrue(response.isSuccess());
+                assertEquals("test_access_token", response.getAccessToken());
+            }
+        }
+    }
+}
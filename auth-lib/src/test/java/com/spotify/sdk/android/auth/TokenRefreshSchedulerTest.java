@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TokenRefreshSchedulerTest {
+
+    private static final String CLIENT_ID = "test_client_id";
+    private static final String[] SCOPES = {"streaming"};
+    private static final String REFRESHED_RESPONSE = "{\"access_token\":\"refreshed_token\",\"token_type\":\"Bearer\","
+            + "\"expires_in\":400,\"refresh_token\":\"new_refresh_token\"}";
+
+    private LocalTokenServer server;
+    private FakeClock clock;
+    private FakeTimer timer;
+    private FakeNetworkMonitor network;
+    private float refreshFraction;
+    private TokenStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTokenServer();
+        server.setResponse(200, REFRESHED_RESPONSE);
+        clock = new FakeClock();
+        timer = new FakeTimer();
+        network = new FakeNetworkMonitor();
+        refreshFraction = 0.5f;
+        store = newStore();
+    }
+
+    private TokenStore newStore() {
+        return new TokenStore(null, clock, Runnable::run, (clientId, refreshToken) ->
+                new TokenRefreshRequest(clientId, refreshToken, server.createTransport()));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private void startScheduler(double jitterFraction, Random random) {
+        new TokenRefreshScheduler(store, clock, timer, network, Runnable::run, () -> refreshFraction,
+                jitterFraction, random).start();
+    }
+
+    private void putToken(int expiresIn) {
+        store.put(CLIENT_ID, SCOPES,
+                TokenExchangeResponse.fromSuccess("access_token", "Bearer", expiresIn, null, "refresh_token"));
+    }
+
+    @Test
+    public void shouldScheduleRefreshAtFractionOfLifetime() {
+        startScheduler(0, new Random());
+
+        putToken(400);
+
+        assertEquals(200_000L, timer.delayMillis);
+        assertEquals(0, server.getRequestBodies().size());
+    }
+
+    @Test
+    public void shouldCapTimerDelay() {
+        startScheduler(0, new Random());
+
+        putToken(3600);
+
+        assertEquals(TokenRefreshScheduler.MAX_TIMER_DELAY_MS, timer.delayMillis);
+    }
+
+    @Test
+    public void shouldRefreshWhenDue() {
+        startScheduler(0, new Random());
+        putToken(400);
+
+        clock.elapsed += 200_000L;
+        timer.fire();
+
+        assertEquals(1, server.getRequestBodies().size());
+        assertTrue(server.getRequestBodies().get(0).contains("grant_type=refresh_token"));
+        StoredToken token = store.getValidToken(CLIENT_ID, SCOPES);
+        assertNotNull(token);
+        assertEquals("refreshed_token", token.getAccessToken());
+        assertEquals("new_refresh_token", token.getRefreshToken());
+        // The refreshed token is scheduled in turn
+        assertEquals(200_000L, timer.delayMillis);
+    }
+
+    @Test
+    public void shouldNotRefreshWhenDisabled() {
+        refreshFraction = 0f;
+        startScheduler(0, new Random());
+
+        putToken(400);
+
+        assertNull(timer.task);
+    }
+
+    @Test
+    public void shouldNotRefreshTokensWithoutRefreshToken() {
+        startScheduler(0, new Random());
+
+        store.put(CLIENT_ID, SCOPES, TokenExchangeResponse.fromSuccess("access_token", "Bearer", 400, null, null));
+
+        assertNull(timer.task);
+    }
+
+    @Test
+    public void shouldWaitForNetworkWhenOffline() {
+        startScheduler(0, new Random());
+        putToken(400);
+        network.online = false;
+
+        clock.elapsed += 200_000L;
+        timer.fire();
+
+        assertEquals(0, server.getRequestBodies().size());
+        assertNotNull(network.onAvailable);
+
+        network.online = true;
+        network.onAvailable.run();
+
+        assertEquals(1, server.getRequestBodies().size());
+        assertEquals("refreshed_token", store.getValidToken(CLIENT_ID, SCOPES).getAccessToken());
+    }
+
+    @Test
+    public void shouldRetryFailedRefreshWithBackoff() {
+        startScheduler(0, new Random());
+        putToken(400);
+        server.setResponse(503, "{\"error\":\"server_error\"}");
+
+        clock.elapsed += 200_000L;
+        timer.fire();
+
+        assertEquals(1, server.getRequestBodies().size());
+        assertEquals(15_000L, timer.delayMillis);
+
+        server.setResponse(200, REFRESHED_RESPONSE);
+        clock.elapsed += 15_000L;
+        timer.fire();
+
+        assertEquals(2, server.getRequestBodies().size());
+        assertEquals("refreshed_token", store.getValidToken(CLIENT_ID, SCOPES).getAccessToken());
+    }
+
+    @Test
+    public void shouldNotRetryRejectedRefreshToken() {
+        startScheduler(0, new Random());
+        putToken(400);
+        server.setResponse(400, "{\"error\":\"invalid_grant\"}");
+
+        clock.elapsed += 200_000L;
+        timer.fire();
+
+        assertEquals(1, server.getRequestBodies().size());
+        assertNull(timer.task);
+        assertEquals("access_token", store.getValidToken(CLIENT_ID, SCOPES).getAccessToken());
+    }
+
+    @Test
+    public void shouldNotStoreRefreshedTokenAfterLogout() {
+        store = new TokenStore(null, clock, Runnable::run, (clientId, refreshToken) -> {
+            // The user logs out while the refresh is running
+            store.clear();
+            return new TokenRefreshRequest(clientId, refreshToken, server.createTransport());
+        });
+        startScheduler(0, new Random());
+        putToken(400);
+
+        clock.elapsed += 200_000L;
+        timer.fire();
+
+        assertEquals(1, server.getRequestBodies().size());
+        assertNull(store.getValidToken(CLIENT_ID, SCOPES, Long.MIN_VALUE));
+    }
+
+    @Test
+    public void shouldSpreadRefreshesWithJitter() {
+        Set<Long> delays = new HashSet<>();
+        for (int seed = 0; seed < 20; seed++) {
+            store = newStore();
+            startScheduler(0.1, new Random(seed));
+
+            putToken(400);
+
+            assertTrue(timer.delayMillis >= 160_000L && timer.delayMillis <= 240_000L);
+            delays.add(timer.delayMillis);
+        }
+        assertTrue(delays.size() > 1);
+    }
+
+    private static class FakeClock implements TokenStore.Clock {
+        long elapsed = 1_000_000L;
+
+        @Override
+        public long elapsedRealtime() {
+            return elapsed;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return 1_700_000_000_000L + elapsed;
+        }
+    }
+
+    private static class FakeTimer implements TokenRefreshScheduler.Timer {
+        Runnable task;
+        long delayMillis;
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            this.task = task;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (this.task == task) {
+                this.task = null;
+            }
+        }
+
+        void fire() {
+            Runnable pending = task;
+            task = null;
+            pending.run();
+        }
+    }
+
+    private static class FakeNetworkMonitor implements TokenRefreshScheduler.NetworkMonitor {
+        boolean online = true;
+        Runnable onAvailable;
+
+        @Override
+        public boolean isOnline() {
+            return online;
+        }
+
+        @Override
+        public void waitForNetwork(Runnable onAvailable) {
+            this.onAvailable = onAvailable;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TokenResponseParserTest {
+
+    private static TokenExchangeResponse parse(int responseCode, String body) throws IOException {
+        return TokenResponseParser.INSTANCE.parse(responseCode, stream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static InputStream stream(byte[] bytes) {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Test
+    public void shouldSkipUnknownFieldsOfAnyType() throws Exception {
+        final TokenExchangeResponse response = parse(200, "{\"nested\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":null},"
+                + "\"list\":[\"x\",[]],\"flag\":true,\"number\":-1.5e3,"
+                + "\"access_token\":\"token\",\"expires_in\":3600}");
+
+        assertTrue(response.isSuccess());
+        assertEquals("token", response.getAccessToken());
+        assertEquals(3600, response.getExpiresIn());
+    }
+
+    @Test
+    public void shouldDecodeEscapesAndMultiByteCharacters() throws Exception {
+        final TokenExchangeResponse response = parse(200,
+                "{\"access_token\":\"a\\\"b\\\\c\\/d\\u00e9\",\"scope\":\"sc\u00f6pe \u20ac\"}");
+
+        assertEquals("a\"b\\c/d\u00e9", response.getAccessToken());
+        assertEquals("sc\u00f6pe \u20ac", response.getScope());
+    }
+
+    @Test
+    public void shouldMatchEscapedKeys() throws Exception {
+        final TokenExchangeResponse response = parse(200, "{\"access\\u005ftoken\":\"token\"}");
+
+        assertEquals("token", response.getAccessToken());
+    }
+
+    @Test
+    public void shouldAcceptSurroundingWhitespace() throws Exception {
+        final TokenExchangeResponse response = parse(200, " \n{ \"access_token\" :\t\"token\" ,\r\n"
+                + " \"token_type\" : \"Bearer\" } \n");
+
+        assertTrue(response.isSuccess());
+        assertEquals("Bearer", response.getTokenType());
+    }
+
+    @Test
+    public void shouldConvertExpiresInLikeJsonObject() throws Exception {
+        assertEquals(120, parse(200, "{\"access_token\":\"t\",\"expires_in\":\"120\"}").getExpiresIn());
+        assertEquals(390, parse(200, "{\"access_token\":\"t\",\"expires_in\":3.9e2}").getExpiresIn());
+        assertEquals(0, parse(200, "{\"access_token\":\"t\",\"expires_in\":\"soon\"}").getExpiresIn());
+        assertEquals(0, parse(200, "{\"access_token\":\"t\",\"expires_in\":null}").getExpiresIn());
+        assertEquals(0, parse(200, "{\"access_token\":\"t\",\"expires_in\":{\"s\":1}}").getExpiresIn());
+    }
+
+    @Test
+    public void shouldTreatJsonNullAsMissing() throws Exception {
+        final TokenExchangeResponse response = parse(200, "{\"access_token\":\"t\",\"refresh_token\":null}");
+
+        assertNull(response.getRefreshToken());
+    }
+
+    @Test
+    public void shouldRejectMalformedBodies() throws Exception {
+        final String[] bodies = {
+                "[]",
+                "{\"access_token\":\"t\",}",
+                "{\"access_token\":\"t\"",
+                "{\"access_token\":\"t",
+                "{\"access_token\":tru}",
+                "{\"access_token\" \"t\"}",
+                "{\"x\":[1,2,\"access_token\":\"t\"}",
+                "{\"access_token\":\"\\q\"}",
+        };
+        for (String body : bodies) {
+            final TokenExchangeResponse response = parse(200, body);
+
+            assertFalse(body, response.isSuccess());
+            assertEquals(body, "invalid_response", response.getError());
+            assertTrue(body, response.getErrorDescription().startsWith("Invalid JSON response:"));
+        }
+    }
+
+    @Test
+    public void shouldRejectUnicodeEscapesWithoutFourHexDigits() throws Exception {
+        final String[] bodies = {
+                "{\"access_token\":\"\\u+041\"}",
+                "{\"access_token\":\"\\u-001\"}",
+                "{\"access_token\":\"\\u00g1\"}",
+                "{\"access_token\":\"\\u0\uff10\uff10\uff11\"}",
+                "{\"access_token\":\"\\u004\"}",
+        };
+        for (String body : bodies) {
+            final TokenExchangeResponse response = parse(200, body);
+
+            assertFalse(body, response.isSuccess());
+            assertEquals(body, "Invalid JSON response: Invalid unicode escape", response.getErrorDescription());
+        }
+    }
+
+    @Test
+    public void shouldRejectMismatchedBracketsInSkippedValues() throws Exception {
+        final String[] bodies = {
+                "{\"a\":[},\"access_token\":\"t\"}",
+                "{\"a\":{\"b\":[1}]},\"access_token\":\"t\"}",
+                "{\"a\":[{]},\"access_token\":\"t\"}",
+        };
+        for (String body : bodies) {
+            final TokenExchangeResponse response = parse(200, body);
+
+            assertFalse(body, response.isSuccess());
+            assertEquals(body, "invalid_response", response.getError());
+            assertTrue(body, response.getErrorDescription().startsWith("Invalid JSON response:"));
+        }
+    }
+
+    @Test
+    public void shouldRejectTrailingContent() throws Exception {
+        final String[] bodies = {
+                "{\"access_token\":\"t\"}x",
+                "{\"access_token\":\"t\"} {}",
+                "{\"access_token\":\"t\"},",
+        };
+        for (String body : bodies) {
+            final TokenExchangeResponse response = parse(200, body);
+
+            assertFalse(body, response.isSuccess());
+            assertEquals(body, "invalid_response", response.getError());
+            assertTrue(body, response.getErrorDescription().startsWith("Invalid JSON response:"));
+        }
+    }
+
+    @Test
+    public void shouldReportEmptyBody() throws Exception {
+        assertEquals("Empty response body", parse(200, "  \n").getErrorDescription());
+        assertEquals("Empty response body",
+                TokenResponseParser.INSTANCE.parse(200, (InputStream) null).getErrorDescription());
+    }
+
+    @Test
+    public void shouldParseBodyOfMaximumSize() throws Exception {
+        final byte[] body = paddedBody(TokenResponseParser.MAX_BODY_BYTES);
+
+        final TokenExchangeResponse response = TokenResponseParser.INSTANCE.parse(200, stream(body));
+
+        assertTrue(response.isSuccess());
+        assertEquals("token", response.getAccessToken());
+    }
+
+    @Test
+    public void shouldRejectBodyLargerThanMaximumSize() throws Exception {
+        final byte[] body = paddedBody(TokenResponseParser.MAX_BODY_BYTES + 1);
+
+        try {
+            TokenResponseParser.INSTANCE.parse(200, stream(body));
+            fail("Expected the body to be rejected");
+        } catch (TokenResponseParser.ResponseTooLargeException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * A valid token response followed by whitespace, `size` bytes in total.
+     */
+    private static byte[] paddedBody(int size) {
+        final byte[] json = "{\"access_token\":\"token\"}".getBytes(StandardCharsets.UTF_8);
+        final byte[] body = new byte[size];
+        Arrays.fill(body, (byte) ' ');
+        System.arraycopy(json, 0, body, 0, json.length);
+        return body;
+    }
+}
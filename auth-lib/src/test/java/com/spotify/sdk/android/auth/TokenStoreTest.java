@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TokenStoreTest {
+
+    private static final String CLIENT_ID = "test_client_id";
+    private static final String REDIRECT_URI = "test://redirect";
+    private static final long HOUR_MS = 3600 * 1000L;
+
+    private FakeClock clock;
+    private MemoryPersistence persistence;
+    private TokenStore store;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(1_000_000L, 1_700_000_000_000L);
+        persistence = new MemoryPersistence();
+        store = newStore();
+    }
+
+    private TokenStore newStore() {
+        TokenStore newStore = new TokenStore(persistence, clock, Runnable::run);
+        newStore.load();
+        return newStore;
+    }
+
+    private static AuthorizationRequest request(String... scopes) {
+        return new AuthorizationRequest.Builder(CLIENT_ID, AuthorizationResponse.Type.TOKEN, REDIRECT_URI)
+                .setScopes(scopes)
+                .build();
+    }
+
+    private static AuthorizationResponse tokenResponse(String accessToken, int expiresIn) {
+        return new AuthorizationResponse.Builder()
+                .setType(AuthorizationResponse.Type.TOKEN)
+                .setAccessToken(accessToken)
+                .setExpiresIn(expiresIn)
+                .setRefreshToken("refresh_token")
+                .build();
+    }
+
+    @Test
+    public void shouldReturnStoredTokenWithoutAnyOtherWork() {
+        store.put(request("user-read-private", "streaming"), tokenResponse("token", 3600));
+
+        StoredToken token = store.getValidToken(request("user-read-private", "streaming"));
+
+        assertNotNull(token);
+        assertEquals("token", token.getAccessToken());
+        assertEquals("refresh_token", token.getRefreshToken());
+        assertEquals(3600, token.getExpiresIn());
+        assertEquals(clock.elapsed + HOUR_MS, token.getExpiresAt());
+    }
+
+    @Test
+    public void shouldIgnoreScopeOrderAndDuplicates() {
+        store.put(request("streaming", "user-read-private"), tokenResponse("token", 3600));
+
+        StoredToken token = store.getValidToken(request("user-read-private", " streaming", "streaming"));
+
+        assertNotNull(token);
+        assertEquals(Arrays.asList("streaming", "user-read-private"), token.getScopes());
+    }
+
+    @Test
+    public void shouldNotReturnTokenForOtherScopesOrClient() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        assertNull(store.getValidToken(request("user-read-private")));
+        assertNull(store.getValidToken(request("streaming", "user-read-private")));
+        assertNull(store.getValidToken("other_client", new String[]{"streaming"}));
+    }
+
+    @Test
+    public void shouldServeRequestFromTokenWithMoreScopes() {
+        store.put(request("streaming", "user-read-private", "custom-scope"), tokenResponse("broad", 3600));
+
+        assertEquals("broad", store.getValidToken(request("user-read-private")).getAccessToken());
+        assertEquals("broad", store.getValidToken(request("custom-scope", "streaming")).getAccessToken());
+        assertEquals("broad", store.getValidToken(request()).getAccessToken());
+        assertNull(store.getValidToken(request("other-custom-scope")));
+    }
+
+    @Test
+    public void shouldPreferExactScopesThenLatestExpiry() {
+        store.put(request("streaming", "user-read-private"), tokenResponse("broad_early", 1800));
+        store.put(request("streaming", "user-read-email"), tokenResponse("broad_late", 3600));
+
+        assertEquals("broad_late", store.getValidToken(request("streaming")).getAccessToken());
+
+        store.put(request("streaming"), tokenResponse("exact", 600));
+
+        assertEquals("exact", store.getValidToken(request("streaming")).getAccessToken());
+
+        clock.elapsed += 600 * 1000L;
+
+        assertEquals("broad_late", store.getValidToken(request("streaming")).getAccessToken());
+    }
+
+    @Test
+    public void shouldStoreTokenUnderGrantedScopes() {
+        store.put(CLIENT_ID, new String[]{"streaming", "user-read-private"},
+                TokenExchangeResponse.fromSuccess("token", "Bearer", 3600, "streaming", null));
+
+        assertNotNull(store.getValidToken(request("streaming")));
+        assertNull(store.getValidToken(request("streaming", "user-read-private")));
+    }
+
+    @Test
+    public void shouldRemoveTokenThatServedRequest() {
+        store.put(request("streaming", "user-read-private"), tokenResponse("broad", 3600));
+
+        store.remove(request("streaming"));
+
+        assertNull(store.getValidToken(request("streaming", "user-read-private")));
+    }
+
+    @Test
+    public void shouldNotReturnTokenCloseToExpiry() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        clock.elapsed += HOUR_MS - TokenStore.DEFAULT_MIN_REMAINING_MS;
+        assertNotNull(store.getValidToken(request("streaming")));
+
+        clock.elapsed += 1;
+        assertNull(store.getValidToken(request("streaming")));
+        assertNotNull(store.getValidToken(request("streaming"), 0));
+    }
+
+    @Test
+    public void shouldNotBeFooledByWallClockChanges() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        clock.wall += 24 * HOUR_MS;
+
+        assertNotNull(store.getValidToken(request("streaming")));
+    }
+
+    @Test
+    public void shouldOnlyStoreTokenResponses() {
+        AuthorizationResponse error = new AuthorizationResponse.Builder()
+                .setType(AuthorizationResponse.Type.ERROR)
+                .setError("access_denied")
+                .build();
+
+        assertNull(store.put(request("streaming"), error));
+        assertNull(store.put(CLIENT_ID, null, TokenExchangeResponse.fromError("invalid_grant", null)));
+        assertNull(store.getValidToken(request("streaming")));
+        assertEquals(0, persistence.writes);
+    }
+
+    @Test
+    public void shouldStoreTokenExchangeResponses() {
+        store.put(CLIENT_ID, new String[]{"streaming"},
+                TokenExchangeResponse.fromSuccess("token", "Bearer", 3600, "streaming", null));
+
+        StoredToken token = store.getValidToken(request("streaming"));
+
+        assertNotNull(token);
+        assertEquals("Bearer", token.getTokenType());
+        assertNull(token.getRefreshToken());
+    }
+
+    @Test
+    public void shouldRemoveToken() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        store.remove(request("streaming"));
+
+        assertNull(store.getValidToken(request("streaming")));
+        assertNull(persistence.data);
+    }
+
+    @Test
+    public void shouldReportMissingRefreshToken() {
+        store.put(CLIENT_ID, new String[]{"streaming"},
+                TokenExchangeResponse.fromSuccess("token", "Bearer", 3600, null, null));
+
+        TokenExchangeResponse response = store.refresh(request("streaming"));
+
+        assertFalse(response.isSuccess());
+        assertEquals(TokenStore.ERROR_NO_REFRESH_TOKEN, response.getError());
+    }
+
+    @Test
+    public void shouldShareConcurrentRefreshesOfSameToken() throws Exception {
+        try (LocalTokenServer server = new LocalTokenServer()) {
+            server.setResponseDelayMillis(500);
+            // A new transport per request, so only the store can merge the refreshes
+            TokenStore refreshingStore = new TokenStore(persistence, clock, Runnable::run,
+                    (clientId, refreshToken) -> new TokenRefreshRequest(clientId, refreshToken, server.createTransport()));
+            refreshingStore.put(request("streaming"), tokenResponse("token", 3600));
+            List<TokenExchangeResponse> responses = new CopyOnWriteArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread thread = new Thread(() -> responses.add(refreshingStore.refresh(request("streaming"))));
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join(5000);
+            }
+
+            assertEquals(1, server.getRequestBodies().size());
+            assertEquals(4, responses.size());
+            for (TokenExchangeResponse response : responses) {
+                assertTrue(response.isSuccess());
+            }
+            assertEquals("test_access_token", refreshingStore.getValidToken(request("streaming")).getAccessToken());
+        }
+    }
+
+    @Test
+    public void shouldReloadTokensFromDisk() {
+        StoredToken stored = store.put(request("streaming"), tokenResponse("token", 3600));
+        clock.elapsed += 1000;
+        clock.wall += 1000;
+
+        StoredToken token = newStore().getValidToken(request("streaming"));
+
+        assertNotNull(token);
+        assertEquals("token", token.getAccessToken());
+        assertEquals(stored.getExpiresAt(), token.getExpiresAt());
+    }
+
+    @Test
+    public void shouldUseWallClockAfterReboot() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        // Rebooted 10 minutes later, and up for 1 minute since
+        clock.wall += 10 * 60 * 1000L;
+        clock.elapsed = 60 * 1000L;
+        StoredToken token = newStore().getValidToken(request("streaming"));
+
+        assertNotNull(token);
+        assertEquals(clock.elapsed + 50 * 60 * 1000L, token.getExpiresAt());
+    }
+
+    @Test
+    public void shouldNotExtendLifetimeWhenClockWentBackAcrossReboot() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        clock.wall -= 24 * HOUR_MS;
+        clock.elapsed = 60 * 1000L;
+        StoredToken token = newStore().getValidToken(request("streaming"));
+
+        assertNotNull(token);
+        assertEquals(clock.elapsed + HOUR_MS, token.getExpiresAt());
+    }
+
+    @Test
+    public void shouldDropExpiredTokensWithoutRefreshTokenOnLoad() {
+        store.put(CLIENT_ID, new String[]{"streaming"},
+                TokenExchangeResponse.fromSuccess("token", "Bearer", 3600, null, null));
+        store.put(request("user-read-private"), tokenResponse("refreshable", 3600));
+        clock.elapsed += 2 * HOUR_MS;
+        clock.wall += 2 * HOUR_MS;
+
+        TokenStore reloaded = newStore();
+
+        assertNull(reloaded.getValidToken(request("streaming"), -2 * HOUR_MS));
+        assertNotNull(reloaded.getValidToken(request("user-read-private"), -2 * HOUR_MS));
+    }
+
+    @Test
+    public void shouldNotReadDiskDuringLookup() {
+        store.put(request("streaming"), tokenResponse("token", 3600));
+        persistence.reads = 0;
+        TokenStore unloaded = new TokenStore(persistence, clock, Runnable::run);
+
+        assertNull(unloaded.getValidToken(request("streaming")));
+        assertEquals(0, persistence.reads);
+        assertFalse(unloaded.isLoaded());
+
+        unloaded.load();
+
+        assertTrue(unloaded.isLoaded());
+        assertNotNull(unloaded.getValidToken(request("streaming")));
+        assertEquals(1, persistence.reads);
+    }
+
+    @Test
+    public void shouldMergeTokensAddedBeforeLoad() {
+        store.put(request("streaming"), tokenResponse("old", 3600));
+        store.put(request("user-read-private"), tokenResponse("other", 3600));
+        store.put(request("user-read-email"), tokenResponse("removed", 3600));
+        TokenStore unloaded = new TokenStore(persistence, new FakeClock(clock.elapsed, clock.wall), task -> { });
+
+        unloaded.put(request("streaming"), tokenResponse("new", 3600));
+        unloaded.put(request("user-read-email"), tokenResponse("removed", 3600));
+        unloaded.remove(request("user-read-email"));
+        unloaded.load();
+
+        assertEquals("new", unloaded.getValidToken(request("streaming")).getAccessToken());
+        assertEquals("other", unloaded.getValidToken(request("user-read-private")).getAccessToken());
+        assertNull(unloaded.getValidToken(request("user-read-email")));
+    }
+
+    @Test
+    public void shouldStartOverWhenStoreCantBeRead() {
+        persistence.data = new byte[]{42, 1, 2, 3};
+
+        assertNull(newStore().getValidToken(request("streaming")));
+        assertNull(persistence.data);
+    }
+
+    @Test
+    public void shouldKeepWorkingInMemoryWhenWritesFail() {
+        persistence.failWrites = true;
+
+        store.put(request("streaming"), tokenResponse("token", 3600));
+
+        assertNotNull(store.getValidToken(request("streaming")));
+    }
+
+    @Test
+    public void shouldKeepWorkingInMemoryWhenKeystoreFails() throws Exception {
+        File file = new File(Files.createTempDirectory("tokens").toFile(), "tokens");
+        Files.write(file.toPath(), new byte[]{12, 1, 2, 3});
+        TokenStore brokenStore = new TokenStore(
+                new EncryptedTokenFile(file, new EncryptedTokenFileTest.BrokenKeystoreCipher()), clock, Runnable::run);
+        brokenStore.load();
+
+        assertNull(brokenStore.getValidToken(request("streaming")));
+        brokenStore.put(request("streaming"), tokenResponse("token", 3600));
+
+        assertNotNull(brokenStore.getValidToken(request("streaming")));
+        assertFalse(file.exists());
+        file.getParentFile().delete();
+    }
+
+    @Test
+    public void shouldWorkWithoutPersistence() {
+        TokenStore memoryOnly = new TokenStore(null, clock, Runnable::run);
+
+        memoryOnly.put(request("streaming"), tokenResponse("token", 3600));
+
+        assertNotNull(memoryOnly.getValidToken(request("streaming")));
+    }
+
+    private static class FakeClock implements TokenStore.Clock {
+        long elapsed;
+        long wall;
+
+        FakeClock(long elapsed, long wall) {
+            this.elapsed = elapsed;
+            this.wall = wall;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return elapsed;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return wall;
+        }
+    }
+
+    private static class MemoryPersistence implements TokenStore.Persistence {
+        byte[] data;
+        boolean failWrites;
+        int reads;
+        int writes;
+        int deletes;
+
+        @Override
+        public byte[] read() {
+            reads++;
+            return data;
+        }
+
+        @Override
+        public void write(byte[] data) throws IOException {
+            if (failWrites) {
+                throw new IOException("Disk full");
+            }
+            writes++;
+            this.data = data;
+        }
+
+        @Override
+        public void delete() {
+            deletes++;
+            data = null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.app;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class Sha1HashUtilImplTest {
+
+    @Test
+    public void shouldHashAsciiInput() {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", new Sha1HashUtilImpl().sha1Hash("abc"));
+    }
+
+    @Test
+    public void shouldHashNonAsciiInputAsUtf8() throws Exception {
+        String input = "spötify ♫";
+        byte[] expected = MessageDigest.getInstance("SHA-1").digest(input.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(toHex(expected), new Sha1HashUtilImpl().sha1Hash(input));
+    }
+
+    @Test
+    public void shouldReturnSameHashOnRepeatedCalls() {
+        Sha1HashUtilImpl sha1HashUtil = new Sha1HashUtilImpl();
+        String longInput = new String(new char[1000]).replace('\0', 'a');
+
+        String first = sha1HashUtil.sha1Hash(longInput);
+        sha1HashUtil.sha1Hash("abc");
+
+        assertEquals(first, sha1HashUtil.sha1Hash(longInput));
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
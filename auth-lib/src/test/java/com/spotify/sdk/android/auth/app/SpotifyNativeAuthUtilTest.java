@@ -15,8 +15,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.Activity;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
@@ -24,6 +26,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.Signature;
 import android.content.pm.SigningInfo;
+import android.net.Uri;
 import android.os.Build;
 
 import com.spotify.sdk.android.auth.AuthorizationRequest;
@@ -31,6 +34,7 @@ import com.spotify.sdk.android.auth.AuthorizationResponse;
 import com.spotify.sdk.android.auth.IntentExtras;
 import com.spotify.sdk.android.auth.PKCEInformation;
 
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
@@ -45,8 +49,14 @@ public class SpotifyNativeAuthUtilTest {
 
     private static final String SPOTIFY_HASH = "25a9b2d2745c098361edaa3b87936dc29a28e7f1";
     private static final String DEFAULT_TEST_SIGNATURE = "signature";
+    private static final String SPOTIFY_PACKAGE = "com.spotify.music";
     private Sha1HashUtil mSha1HashUtil;
 
+    @After
+    public void tearDown() {
+        SpotifyNativeAuthUtil.clearDiscoveryCache();
+    }
+
     @Test
     public void shouldReturnFalseWhenNotInstalled() {
         Context mockedContext = mock(Context.class);
@@ -340,16 +350,141 @@ public class SpotifyNativeAuthUtilTest {
         assertFalse(SpotifyNativeAuthUtil.isSpotifyVersionAtLeast(mockedContext, 87001000));
     }
 
+    @Test
+    @Config(sdk = Build.VERSION_CODES.O)
+    public void shouldCacheDiscoveryResultBetweenCalls() throws Exception {
+        Context mockedContext = mock(Context.class);
+        when(mockedContext.getApplicationContext()).thenReturn(mockedContext);
+        mSha1HashUtil = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, SPOTIFY_HASH));
+        configureDefaultMocks(mockedContext);
+        PackageManager packageManager = mockedContext.getPackageManager();
+
+        assertTrue(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, mSha1HashUtil));
+        assertTrue(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, mSha1HashUtil));
+        SpotifyNativeAuthUtil.getSpotifyAppVersionCode(mockedContext, mSha1HashUtil);
+
+        verify(packageManager, times(1)).queryIntentActivities(any(Intent.class), anyInt());
+        verify(mockedContext, times(1)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.O)
+    public void shouldNotShareCachedDiscoveryResultBetweenVerifiers() {
+        Context mockedContext = mock(Context.class);
+        when(mockedContext.getApplicationContext()).thenReturn(mockedContext);
+        configureDefaultMocks(mockedContext);
+        Sha1HashUtil rejecting = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, "anothervalue"));
+        Sha1HashUtil accepting = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, SPOTIFY_HASH));
+
+        assertFalse(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, rejecting));
+        assertTrue(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, accepting));
+        assertTrue(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, accepting));
+
+        verify(mockedContext.getPackageManager(), times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.O)
+    public void shouldInvalidateDiscoveryCacheOnSpotifyPackageChange() {
+        Context mockedContext = mock(Context.class);
+        when(mockedContext.getApplicationContext()).thenReturn(mockedContext);
+        mSha1HashUtil = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, SPOTIFY_HASH));
+        PackageManager notInstalledPackageManager = mock(PackageManager.class);
+        when(mockedContext.getPackageManager()).thenReturn(notInstalledPackageManager);
+
+        assertFalse(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, mSha1HashUtil));
+
+        ArgumentCaptor<BroadcastReceiver> receiverCaptor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        verify(mockedContext).registerReceiver(receiverCaptor.capture(), any(IntentFilter.class));
+
+        configureDefaultMocks(mockedContext);
+        assertFalse(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, mSha1HashUtil));
+
+        Intent otherPackageAdded = new Intent(Intent.ACTION_PACKAGE_ADDED, Uri.parse("package:com.example.app"));
+        receiverCaptor.getValue().onReceive(mockedContext, otherPackageAdded);
+        assertFalse(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, mSha1HashUtil));
+
+        Intent spotifyAdded = new Intent(Intent.ACTION_PACKAGE_ADDED, Uri.parse("package:com.spotify.music"));
+        receiverCaptor.getValue().onReceive(mockedContext, spotifyAdded);
+        assertTrue(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, mSha1HashUtil));
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.Q)
+    public void getSpotifyAppInfo_shouldProbeWithSingleQueryAndPackageInfoCall() throws Exception {
+        Context mockedContext = mock(Context.class);
+        mSha1HashUtil = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, SPOTIFY_HASH));
+        configureMocksWithSigningInfo(mockedContext);
+        PackageInfo packageInfo = mockedContext.getPackageManager().getPackageInfo(SPOTIFY_PACKAGE, 0);
+        packageInfo.versionCode = 87001234;
+        PackageManager packageManager = mockedContext.getPackageManager();
+
+        SpotifyAppInfo appInfo = SpotifyNativeAuthUtil.getSpotifyAppInfo(mockedContext, mSha1HashUtil);
+
+        assertEquals(SPOTIFY_PACKAGE, appInfo.getPackageName());
+        assertEquals(87001234, appInfo.getVersionCode());
+        assertTrue(appInfo.isVerified());
+        assertTrue(appInfo.isInstalled());
+        verify(packageManager, times(1)).queryIntentActivities(any(Intent.class), anyInt());
+        verify(packageManager, times(1)).getPackageInfo(eq(SPOTIFY_PACKAGE), eq(PackageManager.GET_SIGNING_CERTIFICATES));
+    }
+
+    @Test
+    public void getSpotifyAppInfo_shouldIgnoreNonSpotifyPackagesHandlingAuthAction() {
+        Context mockedContext = mock(Context.class);
+        mSha1HashUtil = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, SPOTIFY_HASH));
+        configureDefaultMocks(mockedContext);
+        ResolveInfo info = new ResolveInfo();
+        info.activityInfo = new ActivityInfo();
+        info.activityInfo.packageName = "com.example.spotify.music";
+        when(mockedContext.getPackageManager().queryIntentActivities(any(Intent.class), anyInt()))
+                .thenReturn(Collections.singletonList(info));
+
+        assertEquals(SpotifyAppInfo.NOT_INSTALLED, SpotifyNativeAuthUtil.getSpotifyAppInfo(mockedContext, mSha1HashUtil));
+    }
+
+    @Test
+    public void getSpotifyAppInfo_shouldReportUnverifiedPackage() {
+        Context mockedContext = mock(Context.class);
+        mSha1HashUtil = new FakeSha1HashUtil(Collections.singletonMap(DEFAULT_TEST_SIGNATURE, "anothervalue"));
+        configureDefaultMocks(mockedContext);
+
+        SpotifyAppInfo appInfo = SpotifyNativeAuthUtil.getSpotifyAppInfo(mockedContext, mSha1HashUtil);
+
+        assertEquals(SPOTIFY_PACKAGE, appInfo.getPackageName());
+        assertFalse(appInfo.isVerified());
+        assertFalse(appInfo.isInstalled());
+        assertEquals(-1, appInfo.getVerifiedVersionCode());
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.O)
+    public void shouldMemoizeSignatureVerdictPerCertificate() {
+        Context mockedContext = mock(Context.class);
+        PackageInfo packageInfo = new PackageInfo();
+        Signature mockedSignature = mock(Signature.class);
+        when(mockedSignature.toByteArray()).thenReturn(new byte[]{0x30, (byte) 0x82, 0x04, 0x43});
+        packageInfo.signatures = new Signature[]{mockedSignature, mockedSignature};
+        configureMocks(mockedContext, packageInfo);
+
+        assertFalse(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, new Sha1HashUtilImpl()));
+        assertFalse(SpotifyNativeAuthUtil.isSpotifyInstalled(mockedContext, new Sha1HashUtilImpl()));
+
+        verify(mockedSignature, times(1)).toByteArray();
+    }
+
     private void configureMocks(Context mockedContext, PackageInfo packageInfo) {
         PackageManager mockedPackageManager = mock(PackageManager.class);
         when(mockedContext.getPackageManager()).thenReturn(mockedPackageManager);
         ResolveInfo info = new ResolveInfo();
         info.activityInfo = new ActivityInfo();
-        String packageName = "package";
+        String packageName = SPOTIFY_PACKAGE;
+        info.activityInfo.packageName = packageName;
         info.activityInfo.applicationInfo = new ApplicationInfo();
         info.activityInfo.applicationInfo.packageName = packageName;
         info.activityInfo.name = "";
-        when(mockedPackageManager.resolveActivity(any(), anyInt())).thenReturn(info);
+        when(mockedPackageManager.queryIntentActivities(any(Intent.class), anyInt()))
+                .thenReturn(Collections.singletonList(info));
         try {
             when(mockedPackageManager.getPackageInfo(anyString(), anyInt())).thenReturn(packageInfo);
         } catch (PackageManager.NameNotFoundException ignored) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/*
+ * Macrobenchmarks of the browser login flow of auth-sample. They drive the sample's benchmark
+ * build, which logs in against a stand-in accounts service that the benchmarks run on the device,
+ * so no Spotify account or network is involved.
+ *
+ * run: ./gradlew :auth-macrobenchmark:connectedBenchmarkAndroidTest
+ * Use a device with Android 10 or later, a browser that supports Custom Tabs and has been through
+ * its first-run screens, and no Spotify app installed. The results, and a Perfetto trace per
+ * iteration, are written to build/outputs/connected_android_test_additional_output on the host.
+ */
+
+plugins {
+    id("com.android.test")
+    id("kotlin-android")
+}
+
+android {
+    compileSdk = 35
+    buildToolsVersion = "35.0.0"
+
+    defaultConfig {
+        // Macrobenchmark needs API 23; the trace sections it reads need API 29
+        minSdk = 23
+        targetSdk = 35
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    buildTypes {
+        // Matches the sample's benchmark build type, which is what gets installed and measured
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = getByName("debug").signingConfig
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    targetProjectPath = ":auth-sample"
+    experimentalProperties["android.experimental.self-instrumenting"] = true
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+
+    kotlinOptions {
+        jvmTarget = "1.8"
+    }
+
+    namespace = "com.spotify.sdk.android.auth.macrobenchmark"
+}
+
+androidComponents {
+    beforeVariants(selector().all()) {
+        it.enable = it.buildType == "benchmark"
+    }
+}
+
+dependencies {
+    implementation("androidx.benchmark:benchmark-macro-junit4:1.2.4")
+    implementation("androidx.test.ext:junit:1.1.5")
+    implementation("androidx.test.uiautomator:uiautomator:2.2.0")
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.macrobenchmark
+
+import android.net.Uri
+import java.io.BufferedReader
+import java.io.IOException
+import java.io.InputStreamReader
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A stand-in for the Spotify accounts service on the device's loopback interface. It answers
+ * every authorize request at once with a redirect to the request's redirect URI, as the accounts
+ * service does for a user who has already approved the app. Code requests get `code1`, `code2`
+ * and so on in the query, token requests an access token in the fragment.
+ *
+ * The benchmark build of auth-sample sends its requests to [AUTHORIZE_URI].
+ */
+class LocalAccountsServer : AutoCloseable {
+
+    private val serverSocket = ServerSocket(PORT, 0, InetAddress.getLoopbackAddress())
+    private val authorizeRequests = AtomicInteger()
+
+    init {
+        Thread(::acceptConnections, "LocalAccountsServer").apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    /**
+     * The code that the next authorize request will get.
+     */
+    fun nextCode(): String = "code${authorizeRequests.get() + 1}"
+
+    override fun close() {
+        serverSocket.close()
+    }
+
+    private fun acceptConnections() {
+        while (!serverSocket.isClosed) {
+            try {
+                serverSocket.accept().use(::handle)
+            } catch (ignored: IOException) {
+                // Closed, or the browser dropped the connection
+            }
+        }
+    }
+
+    private fun handle(socket: Socket) {
+        val reader = BufferedReader(InputStreamReader(socket.getInputStream(), Charsets.US_ASCII))
+        val requestLine = reader.readLine() ?: return
+        // Read the headers, so closing the socket doesn't reset the connection
+        while (!reader.readLine().isNullOrEmpty()) {
+            continue
+        }
+
+        // For example "GET /authorize?client_id=...&response_type=code HTTP/1.1"
+        val target = requestLine.split(' ').getOrNull(1) ?: return
+        val request = Uri.parse("http://127.0.0.1$target")
+        val response = if (request.path == AUTHORIZE_PATH) {
+            "HTTP/1.1 302 Found\r\nLocation: ${redirectFor(request)}\r\n"
+        } else {
+            "HTTP/1.1 404 Not Found\r\n"
+        } + "Content-Length: 0\r\nConnection: close\r\n\r\n"
+
+        socket.getOutputStream().apply {
+            write(response.toByteArray(Charsets.US_ASCII))
+            flush()
+        }
+    }
+
+    private fun redirectFor(request: Uri): Uri {
+        val redirectUri = Uri.parse(request.getQueryParameter("redirect_uri"))
+        val state = request.getQueryParameter("state")
+        val n = authorizeRequests.incrementAndGet()
+
+        val builder = redirectUri.buildUpon()
+        if (request.getQueryParameter("response_type") == "token") {
+            var fragment = "access_token=token$n&token_type=Bearer&expires_in=3600"
+            if (state != null) {
+                fragment += "&state=" + Uri.encode(state)
+            }
+            builder.encodedFragment(fragment)
+        } else {
+            builder.appendQueryParameter("code", "code$n")
+            if (state != null) {
+                builder.appendQueryParameter("state", state)
+            }
+        }
+        return builder.build()
+    }
+
+    companion object {
+        const val PORT = 8089
+        const val AUTHORIZE_PATH = "/authorize"
+        const val AUTHORIZE_URI = "http://127.0.0.1:$PORT$AUTHORIZE_PATH"
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.macrobenchmark
+
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Until
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.regex.Pattern
+
+/**
+ * Measures a browser login in auth-sample, from tapping Request Code to the code reaching
+ * MainActivity. Every iteration goes through LoginActivity, the Custom Tab, the stand-in
+ * accounts service and RedirectUriReceiverActivity.
+ *
+ * The metrics are the trace sections that auth-lib records along the way:
+ * - timeToAuthUi: from openLoginActivity until LoginActivity is first stopped behind the Custom Tab
+ * - timeToResponse: from the redirect reaching the app until LoginActivity returns the response
+ * - openLoginActivity, LoginActivity.onCreate, customTabConnect and customTabLaunch: the steps
+ *   that open the Custom Tab
+ * - RedirectUriReceiverActivity.onCreate and LoginActivity.onNewIntent: the hops back to the app
+ * - LoginActivity.onDestroy: the teardown of LoginActivity
+ */
+@OptIn(ExperimentalMetricApi::class)
+@RunWith(AndroidJUnit4::class)
+class LoginFlowBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    private lateinit var accountsServer: LocalAccountsServer
+
+    @Before
+    fun setUp() {
+        accountsServer = LocalAccountsServer()
+    }
+
+    @After
+    fun tearDown() {
+        accountsServer.close()
+    }
+
+    /**
+     * The first login in a new process, so nothing in auth-lib has been loaded or cached yet.
+     */
+    @Test
+    fun coldLogin() = measureLogin(cold = true)
+
+    /**
+     * A login in a process that has already logged in once.
+     */
+    @Test
+    fun warmLogin() = measureLogin(cold = false)
+
+    private fun measureLogin(cold: Boolean) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = METRICS,
+        iterations = ITERATIONS,
+        setupBlock = {
+            if (cold) {
+                killProcess()
+            }
+            startActivityAndWait()
+            if (!cold) {
+                requestCode()
+            }
+        }
+    ) {
+        requestCode()
+    }
+
+    /**
+     * Taps Request Code and waits until MainActivity shows the code from the stand-in accounts service.
+     */
+    private fun MacrobenchmarkScope.requestCode() {
+        val code = accountsServer.nextCode()
+        device.findObject(By.text(REQUEST_CODE_BUTTON)).click()
+        val received = device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "code_text_view").textContains(code)), TIMEOUT_MS)
+        check(received == true) { "auth-sample did not receive $code within $TIMEOUT_MS ms" }
+    }
+
+    companion object {
+        private const val TARGET_PACKAGE = "com.spotify.sdk.android.authentication.sample"
+        private const val ITERATIONS = 10
+        private const val TIMEOUT_MS = 10_000L
+
+        // The button text may be shown in capitals
+        private val REQUEST_CODE_BUTTON = Pattern.compile("Request Code", Pattern.CASE_INSENSITIVE)
+
+        // The sections recorded by auth-lib's AuthTrace. The ones spanning several activities are
+        // async sections, which are only matched when any process is searched.
+        private val METRICS = listOf(
+            TraceSectionMetric("SpotifyAuth:timeToAuthUi", targetPackageOnly = false),
+            TraceSectionMetric("SpotifyAuth:timeToResponse", targetPackageOnly = false),
+            TraceSectionMetric("SpotifyAuth:openLoginActivity"),
+            TraceSectionMetric("SpotifyAuth:LoginActivity.onCreate"),
+            TraceSectionMetric("SpotifyAuth:customTabConnect", targetPackageOnly = false),
+            TraceSectionMetric("SpotifyAuth:customTabLaunch"),
+            TraceSectionMetric("SpotifyAuth:RedirectUriReceiverActivity.onCreate"),
+            TraceSectionMetric("SpotifyAuth:LoginActivity.onNewIntent"),
+            TraceSectionMetric("SpotifyAuth:LoginActivity.onDestroy")
+        )
+    }
+}
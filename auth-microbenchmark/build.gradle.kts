@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/*
+ * androidx.benchmark suites for the parts of auth-lib that need the Android framework at runtime,
+ * such as Uri, Parcel and the PackageManager. They run as instrumented tests on a device.
+ *
+ * run: ./gradlew :auth-microbenchmark:connectedReleaseAndroidTest
+ * Each benchmark reports the median time per operation (timeNs) and the number of allocations per
+ * operation (allocationCount). The results are written as JSON to
+ * build/outputs/connected_android_test_additional_output on the host.
+ * Use a physical device with a locked clock (./gradlew :auth-microbenchmark:lockClocks on a rooted
+ * device) for stable numbers; emulators and debuggable builds are reported as errors.
+ */
+
+plugins {
+    id("com.android.library")
+    id("kotlin-android")
+    id("androidx.benchmark")
+}
+
+android {
+    compileSdk = 35
+    buildToolsVersion = "35.0.0"
+
+    defaultConfig {
+        minSdk = 21
+        targetSdk = 35
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+        missingDimensionStrategy("auth", "auth")
+    }
+
+    // Benchmarks run against the non-debuggable release build of auth-lib
+    testBuildType = "release"
+    buildTypes {
+        getByName("release") {
+            isMinifyEnabled = false
+            isDefault = true
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+
+    kotlinOptions {
+        jvmTarget = "1.8"
+    }
+
+    namespace = "com.spotify.sdk.android.auth.microbenchmark"
+}
+
+dependencies {
+    androidTestImplementation(project(":auth-lib"))
+    androidTestImplementation("androidx.benchmark:benchmark-junit4:1.2.4")
+    androidTestImplementation("androidx.test:runner:1.5.2")
+    androidTestImplementation("androidx.test.ext:junit:1.1.5")
+    androidTestImplementation("junit:junit:4.13.2")
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Builds the URI that opens the Spotify accounts page for a typical request with scopes,
+ * state, a custom parameter and PKCE. A request builds its URI on the first toUri call and
+ * returns the same Uri after that, so the cost of that first call is buildAndToUri minus build.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AuthorizationRequestBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final PKCEInformation mPkceInformation = PKCEInformation.sha256(
+            "x4yQ2mTd9KvL0pWzR7sN3bHcJ8fA1eGuV6oYiXqZ5tMnB2kD7wPjF0hSrC9aE4lU",
+            "Wz3bK9dQm2Xy8RtV1pLs6NcH0fJg4TaE7uYiOkZx5Mw");
+
+    @Test
+    public void build() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            newRequest();
+        }
+    }
+
+    @Test
+    public void buildAndToUri() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            newRequest().toUri();
+        }
+    }
+
+    @Test
+    public void toUriCached() {
+        final AuthorizationRequest request = newRequest();
+        request.toUri();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            request.toUri();
+        }
+    }
+
+    private AuthorizationRequest newRequest() {
+        return new AuthorizationRequest.Builder(
+                "fcecfc72172e4cd267473117a17cbd4d", AuthorizationResponse.Type.CODE, "yourcustomprotocol://callback")
+                .setScopes(new String[]{"user-read-private", "playlist-read", "playlist-read-private", "streaming"})
+                .setState("a1b2c3d4")
+                .setCustomParam("utm_source", "benchmark")
+                .setPkceInformation(mPkceInformation)
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.net.Uri;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Reads the redirect URI that RedirectUriReceiverActivity hands to LoginActivity, for the
+ * code, token and error responses. Uri caches its parsed parts, so every iteration parses
+ * a new Uri from the redirect string, as an incoming intent does.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AuthorizationResponseBenchmark {
+
+    private static final String CODE_REDIRECT = "yourcustomprotocol://callback"
+            + "?code=AQBx7Qm1kF3n9ZpT2vL8sW4cY6hJ0dR5eG1uN7oX3iK9bV2aM8tS4wE6yC0fH5jP&state=a1b2c3d4";
+    private static final String TOKEN_REDIRECT = "yourcustomprotocol://callback"
+            + "#access_token=BQD3k9Lm2Xp7Rt4Vw1Ys8Nc6Hf0Jg5Ta3Eu9Yi2Ok7Zx4Mw1Qp6Rn8Sb0Dc5Fe"
+            + "&token_type=Bearer&expires_in=3600&state=a1b2c3d4";
+    private static final String ERROR_REDIRECT = "yourcustomprotocol://callback"
+            + "?error=access_denied&state=a1b2c3d4";
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void fromUriCode() {
+        fromUri(CODE_REDIRECT);
+    }
+
+    @Test
+    public void fromUriToken() {
+        fromUri(TOKEN_REDIRECT);
+    }
+
+    @Test
+    public void fromUriError() {
+        fromUri(ERROR_REDIRECT);
+    }
+
+    private void fromUri(String redirect) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            AuthorizationResponse.fromUri(Uri.parse(redirect));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Writes the objects that cross process boundaries during a login to a Parcel and reads them
+ * back. requestInBundle does what the intent that starts LoginActivity does: the request is
+ * put in a Bundle, which is parcelled with its class name and read back through the class loader.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ParcelBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final PKCEInformation mPkceInformation = PKCEInformation.sha256(
+            "x4yQ2mTd9KvL0pWzR7sN3bHcJ8fA1eGuV6oYiXqZ5tMnB2kD7wPjF0hSrC9aE4lU",
+            "Wz3bK9dQm2Xy8RtV1pLs6NcH0fJg4TaE7uYiOkZx5Mw");
+
+    private final AuthorizationRequest mRequest = new AuthorizationRequest.Builder(
+            "fcecfc72172e4cd267473117a17cbd4d", AuthorizationResponse.Type.CODE, "yourcustomprotocol://callback")
+            .setScopes(new String[]{"user-read-private", "playlist-read", "playlist-read-private", "streaming"})
+            .setState("a1b2c3d4")
+            .setCustomParam("utm_source", "benchmark")
+            .setPkceInformation(mPkceInformation)
+            .build();
+
+    private final AuthorizationResponse mResponse = new AuthorizationResponse.Builder()
+            .setType(AuthorizationResponse.Type.TOKEN)
+            .setAccessToken("BQD3k9Lm2Xp7Rt4Vw1Ys8Nc6Hf0Jg5Ta3Eu9Yi2Ok7Zx4Mw1Qp6Rn8Sb0Dc5Fe")
+            .setRefreshToken("AQCr4Lp9Xm2Tn7Vb1Ks6Wd3Hf8Jq0Yg5Zc2Ne7Ru4Ia9Ob1Mx6Pw3Sv8Ty0Ul5Gk")
+            .setState("a1b2c3d4")
+            .setExpiresIn(3600)
+            .build();
+
+    @Test
+    public void authorizationRequest() {
+        roundTrip(mRequest, AuthorizationRequest.CREATOR);
+    }
+
+    @Test
+    public void authorizationResponse() {
+        roundTrip(mResponse, AuthorizationResponse.CREATOR);
+    }
+
+    @Test
+    public void pkceInformation() {
+        roundTrip(mPkceInformation, PKCEInformation.CREATOR);
+    }
+
+    @Test
+    public void requestInBundle() {
+        final ClassLoader classLoader = AuthorizationRequest.class.getClassLoader();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            final Bundle bundle = new Bundle();
+            bundle.putParcelable(LoginActivity.REQUEST_KEY, mRequest);
+            final Parcel parcel = Parcel.obtain();
+            parcel.writeBundle(bundle);
+            parcel.setDataPosition(0);
+            final Bundle read = parcel.readBundle(classLoader);
+            read.getParcelable(LoginActivity.REQUEST_KEY);
+            parcel.recycle();
+        }
+    }
+
+    private <T extends Parcelable> void roundTrip(T value, Parcelable.Creator<T> creator) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            final Parcel parcel = Parcel.obtain();
+            value.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            creator.createFromParcel(parcel);
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.app;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.Signature;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks APK signing certificates against the Spotify ones, as the Spotify app lookup does for
+ * every candidate package.
+ *
+ * <p>The verify benchmarks use certificates the size of the Spotify app's. Verdicts are memoized
+ * per certificate, so verifyUncached cycles through more certificates than the verifier keeps.
+ * The probe benchmarks run the whole lookup against the device's real PackageManager; the
+ * signature check is only part of it when a Spotify app is installed on the device.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class SpotifySignatureBenchmark {
+
+    private static final int CERTIFICATE_BYTES = 1400;
+    private static final int CERTIFICATE_COUNT = 32;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Sha1HashUtil mSha1HashUtil = new Sha1HashUtilImpl();
+
+    @Test
+    public void verifyMemoized() {
+        final Signature[] signatures = {certificate(0)};
+        SpotifyNativeAuthUtil.verifySpotifySignatures(signatures, mSha1HashUtil);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            SpotifyNativeAuthUtil.verifySpotifySignatures(signatures, mSha1HashUtil);
+        }
+    }
+
+    @Test
+    public void verifyUncached() {
+        final Signature[][] signatures = new Signature[CERTIFICATE_COUNT][];
+        for (int i = 0; i < CERTIFICATE_COUNT; i++) {
+            signatures[i] = new Signature[]{certificate(i)};
+        }
+        final BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            SpotifyNativeAuthUtil.verifySpotifySignatures(signatures[i], mSha1HashUtil);
+            i = (i + 1) % CERTIFICATE_COUNT;
+        }
+    }
+
+    @Test
+    public void probeUncached() {
+        // The discovery cache skips contexts without an application context
+        final Context context = new ContextWrapper(targetContext()) {
+            @Override
+            public Context getApplicationContext() {
+                return null;
+            }
+        };
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            SpotifyNativeAuthUtil.getSpotifyAppInfo(context, mSha1HashUtil);
+        }
+    }
+
+    @Test
+    public void probeCached() {
+        final Context context = targetContext();
+        SpotifyNativeAuthUtil.clearDiscoveryCache();
+        SpotifyNativeAuthUtil.getSpotifyAppInfo(context, mSha1HashUtil);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            SpotifyNativeAuthUtil.getSpotifyAppInfo(context, mSha1HashUtil);
+        }
+        SpotifyNativeAuthUtil.clearDiscoveryCache();
+    }
+
+    private static Context targetContext() {
+        return InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+
+    private static Signature certificate(int seed) {
+        final byte[] bytes = new byte[CERTIFICATE_BYTES];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31 + seed * 7 + 7);
+        }
+        return new Signature(bytes);
+    }
+}
@@ -60,6 +60,14 @@ android {
             isMinifyEnabled = false
             proguardFiles(getDefaultProguardFile("proguard-android.txt"))
         }
+        // Profileable release build for auth-macrobenchmark. Its application class (src/benchmark)
+        // points the browser flow at the stand-in accounts service that the benchmarks run on the
+        // device, see LocalAccountsServer.
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
     }
 
     compileOptions {
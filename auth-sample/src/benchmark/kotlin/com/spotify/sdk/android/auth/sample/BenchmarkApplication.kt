@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-2016 Spotify AB
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.sdk.android.auth.sample
+
+import android.app.Application
+import android.net.Uri
+import com.spotify.sdk.android.auth.AuthorizationClient
+import com.spotify.sdk.android.auth.AuthorizationConfig
+
+/**
+ * The application of the benchmark build. It points the browser flow at the stand-in accounts
+ * service that auth-macrobenchmark runs on the device, see LocalAccountsServer.
+ */
+class BenchmarkApplication : Application() {
+
+    override fun onCreate() {
+        super.onCreate()
+        AuthorizationClient.setConfig(
+            AuthorizationConfig.Builder()
+                .setAccountsUri(Uri.parse(LOCAL_ACCOUNTS_URI))
+                .build()
+        )
+    }
+
+    companion object {
+        private const val LOCAL_ACCOUNTS_URI = "http://127.0.0.1:8089/authorize"
+    }
+}
@@ -25,11 +25,14 @@ buildscript {
     repositories {
         mavenCentral()
         google()
+        gradlePluginPortal()
     }
     dependencies {
         classpath("com.android.tools.build:gradle:8.7.3")
         classpath("org.jetbrains.kotlin:kotlin-gradle-plugin:$kotlinVersion")
         classpath("org.jetbrains.dokka:dokka-gradle-plugin:1.9.20")
+        classpath("me.champeau.jmh:jmh-gradle-plugin:0.7.2")
+        classpath("androidx.benchmark:benchmark-gradle-plugin:1.2.4")
     }
 }
 
@@ -1 +1 @@
-include(":auth-lib", ":auth-sample")
+include(":auth-lib", ":auth-sample", ":auth-benchmarks", ":auth-microbenchmark", ":auth-macrobenchmark")